@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Location;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+	private RewardsService rewardsService;
+	private Location[] locations;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		rewardsService = new RewardsService(new StubGpsUtil(26), new RewardPointsClient(new StubRewardCentral()),
+				new ForkJoinExecutionStrategy(1));
+		locations = new Location[1024];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = StubGpsUtil.randomLocation();
+		}
+	}
+
+	@Benchmark
+	public double getDistance() {
+		// Varying pairs keep the JIT from folding the computation
+		next = (next + 1) & (locations.length - 1);
+		return rewardsService.getDistance(locations[next], locations[(next + 511) & (locations.length - 1)]);
+	}
+}
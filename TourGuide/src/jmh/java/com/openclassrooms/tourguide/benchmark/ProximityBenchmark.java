@@ -0,0 +1,85 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import com.openclassrooms.tourguide.attraction.AttractionIndex;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+/**
+ * Proximity filter of one visited location: law of cosines over every attraction,
+ * against the chord comparisons of the pre-projected {@link AttractionIndex}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProximityBenchmark {
+
+	@Param({ "26", "1000" })
+	public int attractionCount;
+
+	@Param({ "10", "200" })
+	public int miles;
+
+	private RewardsService rewardsService;
+	private List<Attraction> attractions;
+	private AttractionIndex attractionIndex;
+	private Location[] locations;
+	private int[] found;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		StubGpsUtil gpsUtil = new StubGpsUtil(attractionCount);
+		rewardsService = new RewardsService(gpsUtil, new RewardPointsClient(new StubRewardCentral()),
+				new ForkJoinExecutionStrategy(1));
+		attractions = gpsUtil.getAttractions();
+		attractionIndex = new AttractionIndex(attractions);
+		found = new int[attractionIndex.size()];
+		locations = new Location[1024];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = StubGpsUtil.randomLocation();
+		}
+	}
+
+	@Benchmark
+	public int lawOfCosinesScan() {
+		Location location = nextLocation();
+		int count = 0;
+		for (Attraction attraction : attractions) {
+			if (!(rewardsService.getDistance(attraction, location) > miles)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int chordIndex() {
+		return attractionIndex.withinMiles(nextLocation(), miles, found);
+	}
+
+	private Location nextLocation() {
+		next = (next + 1) & (locations.length - 1);
+		return locations[next];
+	}
+}
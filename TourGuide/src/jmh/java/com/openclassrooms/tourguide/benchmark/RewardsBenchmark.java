@@ -0,0 +1,74 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * {@link RewardsService#calculateRewards(User)} on a user whose whole history still has to be evaluated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewardsBenchmark {
+
+	@Param({ "1", "288", "1024" })
+	public int historySize;
+
+	@Param({ "26", "1000" })
+	public int attractionCount;
+
+	private RewardsService rewardsService;
+	private RewardPointsClient rewardPointsClient;
+	private ForkJoinExecutionStrategy executionStrategy;
+	private User user;
+
+	@Setup(Level.Trial)
+	public void setUpService() {
+		rewardPointsClient = new RewardPointsClient(new StubRewardCentral());
+		executionStrategy = new ForkJoinExecutionStrategy(1);
+		rewardsService = new RewardsService(new StubGpsUtil(attractionCount), rewardPointsClient, executionStrategy);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpUser() {
+		user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		for (int i = 0; i < historySize; i++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), StubGpsUtil.randomLocation(), new Date()));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rewardPointsClient.shutdown();
+		executionStrategy.shutdown();
+	}
+
+	@Benchmark
+	public int calculateRewards() {
+		return rewardsService.calculateRewards(user);
+	}
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * {@link GpsUtil} without the rate limit and the sleeps, so benchmarks measure TourGuide only.
+ * The attraction catalogue is synthetic and can be made larger than the real one.
+ */
+public class StubGpsUtil extends GpsUtil {
+	private final List<Attraction> attractions;
+
+	public StubGpsUtil(int attractionCount) {
+		// Fixed seed: every run benchmarks the same catalogue
+		Random random = new Random(42);
+		attractions = new ArrayList<>(attractionCount);
+		for (int i = 0; i < attractionCount; i++) {
+			attractions.add(new Attraction("Attraction " + i, "City " + i, "State",
+					-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360));
+		}
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return new VisitedLocation(userId, randomLocation(), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return new ArrayList<>(attractions);
+	}
+
+	public static Location randomLocation() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return new Location(random.nextDouble(-85, 85), random.nextDouble(-180, 180));
+	}
+}
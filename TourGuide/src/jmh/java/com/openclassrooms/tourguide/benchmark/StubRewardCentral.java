@@ -0,0 +1,16 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * {@link RewardCentral} answering immediately with points derived from the ids
+ */
+public class StubRewardCentral extends RewardCentral {
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return 1 + Math.floorMod(attractionId.hashCode() ^ userId.hashCode(), 1000);
+	}
+}
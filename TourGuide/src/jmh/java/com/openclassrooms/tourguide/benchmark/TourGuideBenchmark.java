@@ -0,0 +1,90 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.NearbyAttractionDTO;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * {@link TourGuideService} request and tracking paths with stubbed GpsUtil and RewardCentral
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TourGuideBenchmark {
+
+	@Param({ "1000" })
+	public int userCount;
+
+	@Param({ "26", "1000" })
+	public int attractionCount;
+
+	private TourGuideService tourGuideService;
+	private RewardPointsClient rewardPointsClient;
+	private ExecutionStrategy executionStrategy;
+	private List<User> users;
+	private User user;
+	private VisitedLocation visitedLocation;
+
+	@Setup
+	public void setUp() {
+		StubGpsUtil gpsUtil = new StubGpsUtil(attractionCount);
+		rewardPointsClient = new RewardPointsClient(new StubRewardCentral());
+		executionStrategy = ExecutionStrategies.forkJoin();
+		RewardsService rewardsService = new RewardsService(gpsUtil, rewardPointsClient, executionStrategy);
+
+		InternalTestHelper.setInternalUserNumber(userCount);
+		tourGuideService = new TourGuideService(gpsUtil, rewardsService, executionStrategy);
+		// Ticks are driven by the benchmark
+		tourGuideService.tracker.stopTracking();
+
+		users = tourGuideService.getAllUsers();
+		user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		visitedLocation = new VisitedLocation(user.getUserId(), StubGpsUtil.randomLocation(), new Date());
+	}
+
+	@TearDown
+	public void tearDown() {
+		rewardPointsClient.shutdown();
+		executionStrategy.shutdown();
+	}
+
+	@Benchmark
+	public List<NearbyAttractionDTO> getNearByAttractions() {
+		return tourGuideService.getNearByAttractions(visitedLocation, user);
+	}
+
+	/**
+	 * One tracker tick over every user, the score is in ticks per second
+	 */
+	@Benchmark
+	public List<VisitedLocation> trackAllUsersLocation() {
+		return tourGuideService.trackAllUsersLocation(users);
+	}
+}
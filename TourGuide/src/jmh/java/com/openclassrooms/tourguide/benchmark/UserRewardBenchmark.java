@@ -0,0 +1,59 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * {@link User#addUserReward(UserReward)} for an attraction already rewarded, the tracker's common case
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRewardBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int rewardCount;
+
+	private User user;
+	private UserReward[] duplicateRewards;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), StubGpsUtil.randomLocation(), new Date());
+		duplicateRewards = new UserReward[rewardCount];
+		for (int i = 0; i < rewardCount; i++) {
+			Attraction attraction = new Attraction("Attraction " + i, "City", "State", 0, 0);
+			user.addUserReward(new UserReward(visitedLocation, attraction, i));
+			duplicateRewards[i] = new UserReward(visitedLocation, attraction, i);
+		}
+	}
+
+	@Benchmark
+	public boolean addUserReward() {
+		next = next + 1 == duplicateRewards.length ? 0 : next + 1;
+		return user.addUserReward(duplicateRewards[next]);
+	}
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.tourguide;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import gpsUtil.location.VisitedLocation;
+
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+import tripPricer.Provider;
+
+/**
+ * The {@link TourGuideController} endpoints as {@link Mono} and {@link Flux} handlers, served by WebFlux
+ * in the {@value #PROFILE} profile.
+ * <p>
+ * No handler blocks an event loop thread: GpsUtil, the only blocking call left, runs on the bounded
+ * elastic scheduler, and reward points and trip deals are already requested asynchronously by their clients.
+ */
+@RestController
+@Profile(ReactiveTourGuideController.PROFILE)
+public class ReactiveTourGuideController {
+	public static final String PROFILE = "reactive";
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	private final TourGuideService tourGuideService;
+
+	public ReactiveTourGuideController(TourGuideService tourGuideService) {
+		this.tourGuideService = tourGuideService;
+	}
+
+	@RequestMapping("/")
+	public Mono<String> index() {
+		return Mono.just("Greetings from TourGuide!");
+	}
+
+	@RequestMapping("/getLocation")
+	public Mono<VisitedLocation> getLocation(@RequestParam String userName) {
+		return getUserLocation(getUser(userName));
+	}
+
+	@RequestMapping("/getNearbyAttractions")
+	public Flux<NearbyAttractionDTO> getNearbyAttractions(@RequestParam String userName,
+			@RequestParam(defaultValue = "" + TourGuideService.DEFAULT_NEARBY_ATTRACTIONS) int count) {
+		if (count < 1) {
+			return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be positive: " + count));
+		}
+		User user = getUser(userName);
+		return getUserLocation(user)
+				.flatMap(visitedLocation -> Mono.fromFuture(() -> tourGuideService.getNearByAttractionsAsync(visitedLocation, user, count)))
+				.flatMapMany(Flux::fromIterable);
+	}
+
+	/**
+	 * Streams the last location of every user as NDJSON, one line per user as the store is iterated
+	 */
+	@RequestMapping(value = "/getAllCurrentLocations", produces = NDJSON)
+	public Flux<String> getAllCurrentLocations() {
+		return Flux.defer(() -> {
+			double[] coordinates = new double[2];
+			return Flux.fromIterable(tourGuideService.getUserStore())
+					.handle((user, sink) -> {
+						StringWriter line = new StringWriter(96);
+						try {
+							if (tourGuideService.writeCurrentLocation(line, user, coordinates)) {
+								sink.next(line.toString());
+							}
+						} catch (IOException e) {
+							sink.error(new UncheckedIOException(e));
+						}
+					});
+		});
+	}
+
+	@RequestMapping("/getRewards")
+	public Flux<UserReward> getRewards(@RequestParam String userName) {
+		return Flux.defer(() -> Flux.fromIterable(tourGuideService.getUserRewards(getUser(userName))));
+	}
+
+	@RequestMapping("/getTripDeals")
+	public Flux<Provider> getTripDeals(@RequestParam String userName) {
+		return Mono.fromFuture(() -> tourGuideService.getTripDealsAsync(getUser(userName)))
+				.flatMapMany(Flux::fromIterable);
+	}
+
+	/**
+	 * The last known location, or the current one from GpsUtil on the bounded elastic scheduler for a user never located
+	 */
+	private Mono<VisitedLocation> getUserLocation(User user) {
+		if (!user.getLocationHistory().isEmpty()) {
+			return Mono.just(user.getLastVisitedLocation());
+		}
+		return Mono.fromCallable(() -> tourGuideService.getUserLocation(user))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private User getUser(String userName) {
+		User user = tourGuideService.getUser(userName);
+		if (user != null) {
+			// Active users are tracked more often
+			user.recordAccess();
+		}
+		return user;
+	}
+}
@@ -1,10 +1,25 @@
 package com.openclassrooms.tourguide;
 
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import gpsUtil.location.VisitedLocation;
 
@@ -14,9 +29,16 @@ import com.openclassrooms.tourguide.user.UserReward;
 
 import tripPricer.Provider;
 
+/**
+ * Blocking Spring MVC endpoints, replaced by {@link ReactiveTourGuideController} in the reactive profile.
+ */
 @RestController
+@Profile("!" + ReactiveTourGuideController.PROFILE)
 public class TourGuideController {
 
+	private static final String NDJSON = "application/x-ndjson";
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
 	TourGuideService tourGuideService;
 
     public TourGuideController(TourGuideService tourGuideService) {
@@ -34,27 +56,66 @@ public class TourGuideController {
     }
 
     @RequestMapping("/getNearbyAttractions") 
-    public List<NearbyAttractionDTO> getNearbyAttractions(@RequestParam String userName) {
+    public List<NearbyAttractionDTO> getNearbyAttractions(@RequestParam String userName,
+            @RequestParam(defaultValue = "" + TourGuideService.DEFAULT_NEARBY_ATTRACTIONS) int count) {
+        if (count < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be positive: " + count);
+        }
         User user = getUser(userName);
 
     	return tourGuideService.getNearByAttractions(
                 tourGuideService.getUserLocation(user),
-                user
+                user,
+                count
         );
     }
     
+    /**
+     * Streams the last location of every user as NDJSON, gzipped when the client accepts it
+     */
+    @RequestMapping(value = "/getAllCurrentLocations", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> getAllCurrentLocations(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "") String acceptEncoding) {
+        boolean gzip = acceptEncoding.contains("gzip");
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(outputStream, STREAM_BUFFER_SIZE) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+            tourGuideService.writeCurrentLocations(writer);
+            writer.flush();
+            if (gzip) {
+                ((GZIPOutputStream) out).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @RequestMapping("/getRewards") 
     public List<UserReward> getRewards(@RequestParam String userName) {
     	return tourGuideService.getUserRewards(getUser(userName));
     }
        
+    /**
+     * Served asynchronously, the request thread is released while the trips are priced
+     */
     @RequestMapping("/getTripDeals")
-    public List<Provider> getTripDeals(@RequestParam String userName) {
-    	return tourGuideService.getTripDeals(getUser(userName));
+    public CompletableFuture<List<Provider>> getTripDeals(@RequestParam String userName) {
+    	return tourGuideService.getTripDealsAsync(getUser(userName));
     }
     
     private User getUser(String userName) {
-    	return tourGuideService.getUser(userName);
+    	User user = tourGuideService.getUser(userName);
+    	if (user != null) {
+    		// Active users are tracked more often
+    		user.recordAccess();
+    	}
+    	return user;
     }
    
 
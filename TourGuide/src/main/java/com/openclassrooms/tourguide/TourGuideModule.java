@@ -1,28 +1,206 @@
 package com.openclassrooms.tourguide;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.reactive.server.ReactiveWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.ResilientGpsUtil;
+import com.openclassrooms.tourguide.client.ResilientRewardCentral;
+import com.openclassrooms.tourguide.client.ResilientTripPricer;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.client.TripDealsClient;
+import com.openclassrooms.tourguide.cluster.ClusterAssignment;
+import com.openclassrooms.tourguide.cluster.ClusterMemberships;
+import com.openclassrooms.tourguide.event.LocationEventBus;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
+import com.openclassrooms.tourguide.persistence.PersistenceProperties;
+import com.openclassrooms.tourguide.persistence.UserPersistence;
+import com.openclassrooms.tourguide.resilience.ResilienceHealthIndicator;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy;
+import com.openclassrooms.tourguide.resilience.ResilienceProperties;
+import com.openclassrooms.tourguide.service.RewardEngine;
 import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.TrackerProperties;
+import com.openclassrooms.tourguide.user.StripedUserStore;
+import com.openclassrooms.tourguide.user.UserStore;
 
 @Configuration
 public class TourGuideModule {
 	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	public GpsUtil getGpsUtil(@Qualifier("gpsUtilPolicy") ResiliencePolicy gpsUtilPolicy) {
+		return new ResilientGpsUtil(new GpsUtil(), gpsUtilPolicy);
 	}
 	
 	@Bean
-	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+	public RewardsService getRewardsService(GpsUtil gpsUtil, RewardPointsClient rewardPointsClient, ExecutionStrategy executionStrategy,
+			UserPersistence userPersistence) {
+		return new RewardsService(gpsUtil, rewardPointsClient, executionStrategy, userPersistence);
+	}
+
+	/**
+	 * Reactor Netty for the reactive profile: Spring Boot would otherwise run WebFlux on the Tomcat of Spring MVC
+	 */
+	@Bean
+	@Profile(ReactiveTourGuideController.PROFILE)
+	public ReactiveWebServerFactory getReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public LocationEventBus getLocationEventBus() {
+		return new LocationEventBus();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	@ConditionalOnProperty(name = "tourguide.reward-engine.enabled", matchIfMissing = true)
+	public RewardEngine getRewardEngine(RewardsService rewardsService, LocationEventBus locationEventBus,
+			@Value("${tourguide.reward-engine.workers}") int workers,
+			@Value("${tourguide.reward-engine.queue-capacity}") int queueCapacity) {
+		return new RewardEngine(rewardsService, locationEventBus, workers, queueCapacity);
+	}
+
+	@Bean
+	@ConfigurationProperties("tourguide.persistence")
+	public PersistenceProperties getPersistenceProperties() {
+		return new PersistenceProperties();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public UserPersistence getUserPersistence(PersistenceProperties persistenceProperties, GpsUtil gpsUtil) {
+		return new UserPersistence(persistenceProperties, gpsUtil.getAttractions());
+	}
+
+	@Bean
+	public UserStore getUserStore(UserPersistence userPersistence) {
+		UserStore userStore = new StripedUserStore();
+		userPersistence.open(userStore);
+		return userStore;
 	}
 	
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	public RewardCentral getRewardCentral(@Qualifier("rewardCentralPolicy") ResiliencePolicy rewardCentralPolicy) {
+		return new ResilientRewardCentral(new RewardCentral(), rewardCentralPolicy);
+	}
+
+	@Bean
+	public TripPricer getTripPricer(@Qualifier("tripPricerPolicy") ResiliencePolicy tripPricerPolicy) {
+		return new ResilientTripPricer(new TripPricer(), tripPricerPolicy);
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public TripDealsClient getTripDealsClient(TripPricer tripPricer,
+			@Value("${tourguide.trip-pricer.max-concurrent-calls}") int maxConcurrentCalls,
+			@Value("${tourguide.trip-pricer.max-pending-calls}") int maxPendingCalls,
+			@Value("${tourguide.trip-pricer.cache.maximum-size}") int cacheMaximumSize,
+			@Value("${tourguide.trip-pricer.cache.time-to-live}") Duration cacheTimeToLive) {
+		return new TripDealsClient(tripPricer, maxConcurrentCalls, maxPendingCalls, cacheMaximumSize, cacheTimeToLive);
+	}
+
+	@Bean
+	public MeterBinder getTripDealsCacheMetrics(TripDealsClient tripDealsClient) {
+		return tripDealsClient.getCache();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public RewardPointsClient getRewardPointsClient(RewardCentral rewardCentral,
+			@Value("${tourguide.reward-central.max-concurrent-calls}") int maxConcurrentCalls,
+			@Value("${tourguide.reward-central.max-pending-calls}") int maxPendingCalls,
+			@Value("${tourguide.reward-central.cache.maximum-size}") int cacheMaximumSize,
+			@Value("${tourguide.reward-central.cache.time-to-live}") Duration cacheTimeToLive) {
+		return new RewardPointsClient(rewardCentral, maxConcurrentCalls, maxPendingCalls, cacheMaximumSize, cacheTimeToLive);
+	}
+
+	@Bean
+	@ConfigurationProperties("tourguide.resilience")
+	public ResilienceProperties getResilienceProperties() {
+		return new ResilienceProperties();
+	}
+
+	@Bean(name = "gpsUtilPolicy", destroyMethod = "shutdown")
+	public ResiliencePolicy getGpsUtilPolicy(ResilienceProperties resilienceProperties) {
+		return new ResiliencePolicy("gpsUtil", resilienceProperties.getGpsUtil());
+	}
+
+	@Bean(name = "tripPricerPolicy", destroyMethod = "shutdown")
+	public ResiliencePolicy getTripPricerPolicy(ResilienceProperties resilienceProperties) {
+		return new ResiliencePolicy("tripPricer", resilienceProperties.getTripPricer());
+	}
+
+	@Bean(name = "rewardCentralPolicy", destroyMethod = "shutdown")
+	public ResiliencePolicy getRewardCentralPolicy(ResilienceProperties resilienceProperties) {
+		return new ResiliencePolicy("rewardCentral", resilienceProperties.getRewardCentral());
+	}
+
+	// Named for the health endpoint, which shows it as "resilience"
+	@Bean("resilienceHealthIndicator")
+	public HealthIndicator getResilienceHealthIndicator(List<ResiliencePolicy> policies) {
+		return new ResilienceHealthIndicator(policies);
+	}
+
+	@Bean
+	public MeterBinder getRewardPointsCacheMetrics(RewardPointsClient rewardPointsClient) {
+		return rewardPointsClient.getCache();
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public ExecutionStrategy getExecutionStrategy(
+			@Value("${tourguide.execution.strategy}") String strategy,
+			@Value("${tourguide.execution.max-concurrent-tasks}") int maxConcurrentTasks) {
+		return ExecutionStrategies.create(strategy, maxConcurrentTasks);
+	}
+
+	@Bean
+	public MeterBinder getExecutionStrategyMetrics(ExecutionStrategy executionStrategy) {
+		return registry -> {
+			if (executionStrategy instanceof MeterBinder executionMetrics) {
+				executionMetrics.bindTo(registry);
+			}
+		};
+	}
+
+	@Bean
+	public MeterBinder getTrackerMetrics(TourGuideService tourGuideService) {
+		return registry -> {
+			tourGuideService.tracker.bindTo(registry);
+			if (tourGuideService.tracker.getSchedule() instanceof MeterBinder scheduleMetrics) {
+				scheduleMetrics.bindTo(registry);
+			}
+		};
+	}
+
+	@Bean(destroyMethod = "leave")
+	public ClusterAssignment getClusterAssignment(
+			@Value("${tourguide.cluster.backend}") String backend,
+			@Value("${tourguide.cluster.name}") String clusterName,
+			@Value("${tourguide.cluster.member-id:}") String memberId,
+			@Value("${tourguide.cluster.virtual-nodes}") int virtualNodes) {
+		return new ClusterAssignment(ClusterMemberships.create(backend, clusterName),
+				memberId.isEmpty() ? UUID.randomUUID().toString() : memberId, virtualNodes);
+	}
+
+	@Bean
+	@ConfigurationProperties("tourguide.tracker")
+	public TrackerProperties getTrackerProperties() {
+		return new TrackerProperties();
 	}
 	
 }
@@ -0,0 +1,344 @@
+package com.openclassrooms.tourguide.attraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Static k-d tree over the attractions catalogue, built once from {@code GpsUtil.getAttractions()}.
+ * <p>
+ * Attractions are projected once on the unit sphere, in primitive arrays, so that the great-circle
+ * distance is a monotonic function of the straight chord length (see {@link SphericalGeometry}).
+ * Range and k-nearest queries only compare squared chords: after projecting the queried location
+ * they need no trigonometry, and {@link #withinMiles(Location, double, int[])} allocates nothing.
+ */
+public class AttractionIndex {
+	private final Attraction[] attractions;
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] zs;
+	private final double[][] coordinates;
+	private final int[] tree;
+	private final byte[] axes;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		this.attractions = attractions.toArray(new Attraction[0]);
+
+		int size = this.attractions.length;
+		xs = new double[size];
+		ys = new double[size];
+		zs = new double[size];
+		coordinates = new double[][] { xs, ys, zs };
+		tree = new int[size];
+		axes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			double lat = Math.toRadians(this.attractions[i].latitude);
+			double lon = Math.toRadians(this.attractions[i].longitude);
+			xs[i] = Math.cos(lat) * Math.cos(lon);
+			ys[i] = Math.cos(lat) * Math.sin(lon);
+			zs[i] = Math.sin(lat);
+			tree[i] = i;
+		}
+		build(0, size);
+	}
+
+	public int size() {
+		return attractions.length;
+	}
+
+	public List<Attraction> getAttractions() {
+		return List.of(attractions);
+	}
+
+	public Attraction getAttraction(int index) {
+		return attractions[index];
+	}
+
+	/* Squared chord between an attraction and a point projected on the unit sphere */
+	double squaredChordTo(int index, double x, double y, double z) {
+		return SphericalGeometry.squaredChord(xs[index], ys[index], zs[index], x, y, z);
+	}
+
+	/**
+	 * Attractions for which the distance to the location is not greater than {@code miles},
+	 * in catalogue order.
+	 */
+	public List<Attraction> withinMiles(Location location, double miles) {
+		int[] found = new int[attractions.length];
+		int count = withinMiles(location, miles, found);
+
+		List<Attraction> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(attractions[found[i]]);
+		}
+		return result;
+	}
+
+	/**
+	 * Allocation free form of {@link #withinMiles(Location, double)}: writes the catalogue indexes
+	 * of the attractions found, in ascending order, to {@code found}.
+	 *
+	 * @param found at least {@link #size()} long
+	 * @return the number of attractions found
+	 */
+	public int withinMiles(Location location, double miles, int[] found) {
+		double squaredChord = SphericalGeometry.squaredChordForMiles(miles);
+
+		/* Radius covers the whole sphere: nothing to compare */
+		if (squaredChord == Double.POSITIVE_INFINITY) {
+			Arrays.setAll(found, i -> i);
+			return attractions.length;
+		}
+
+		double lat = Math.toRadians(location.latitude);
+		double lon = Math.toRadians(location.longitude);
+		double cosLat = Math.cos(lat);
+		int count = searchWithin(0, attractions.length,
+				cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat),
+				squaredChord, Math.sqrt(squaredChord), found, 0);
+		Arrays.sort(found, 0, count);
+		return count;
+	}
+
+	/**
+	 * The {@code k} attractions closest to the location, closest first.
+	 */
+	public List<Attraction> nearest(Location location, int k) {
+		return nearest(location, k, null);
+	}
+
+	/**
+	 * Same as {@link #nearest(Location, int)}, also writing the distance in miles of each attraction
+	 * found to {@code distances}, computed from the chords compared during the search.
+	 *
+	 * @param distances at least {@code min(k, size())} long, or null
+	 */
+	public List<Attraction> nearest(Location location, int k, double[] distances) {
+		int limit = Math.min(k, attractions.length);
+		if (limit <= 0) {
+			return new ArrayList<>();
+		}
+
+		double lat = Math.toRadians(location.latitude);
+		double lon = Math.toRadians(location.longitude);
+		double cosLat = Math.cos(lat);
+		BoundedMaxHeap heap = new BoundedMaxHeap(limit);
+		searchNearest(0, attractions.length, cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat), heap);
+
+		int count = heap.size;
+		int[] sorted = new int[count];
+		double[] squaredChords = new double[count];
+		heap.drainAscending(sorted, squaredChords);
+		List<Attraction> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(attractions[sorted[i]]);
+			if (distances != null) {
+				distances[i] = SphericalGeometry.milesForSquaredChord(squaredChords[i]);
+			}
+		}
+		return result;
+	}
+
+	private void build(int lo, int hi) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int axis = widestAxis(lo, hi);
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, coordinates[axis]);
+		axes[mid] = (byte) axis;
+
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	private int widestAxis(int lo, int hi) {
+		int widest = 0;
+		double widestSpread = -1;
+		for (int axis = 0; axis < 3; axis++) {
+			double min = Double.MAX_VALUE;
+			double max = -Double.MAX_VALUE;
+			for (int i = lo; i < hi; i++) {
+				double value = coordinates[axis][tree[i]];
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			if (max - min > widestSpread) {
+				widestSpread = max - min;
+				widest = axis;
+			}
+		}
+		return widest;
+	}
+
+	/* Quickselect: places the k-th smallest value of [lo, hi] at position k */
+	private void select(int lo, int hi, int k, double[] values) {
+		while (lo < hi) {
+			double pivot = values[tree[(lo + hi) >>> 1]];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (values[tree[i]] < pivot) i++;
+				while (values[tree[j]] > pivot) j--;
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		int tmp = tree[i];
+		tree[i] = tree[j];
+		tree[j] = tmp;
+	}
+
+	private int searchWithin(int lo, int hi, double qx, double qy, double qz,
+			double squaredChord, double chord, int[] found, int count) {
+		if (lo >= hi) {
+			return count;
+		}
+		int mid = (lo + hi) >>> 1;
+		int index = tree[mid];
+		if (SphericalGeometry.squaredChord(xs[index], ys[index], zs[index], qx, qy, qz) <= squaredChord) {
+			found[count++] = index;
+		}
+		if (hi - lo == 1) {
+			return count;
+		}
+
+		double delta = axisDelta(axes[mid], index, qx, qy, qz);
+		if (delta <= chord) {
+			count = searchWithin(lo, mid, qx, qy, qz, squaredChord, chord, found, count);
+		}
+		if (-delta <= chord) {
+			count = searchWithin(mid + 1, hi, qx, qy, qz, squaredChord, chord, found, count);
+		}
+		return count;
+	}
+
+	private void searchNearest(int lo, int hi, double qx, double qy, double qz, BoundedMaxHeap heap) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		int index = tree[mid];
+		heap.offer(index, SphericalGeometry.squaredChord(xs[index], ys[index], zs[index], qx, qy, qz));
+		if (hi - lo == 1) {
+			return;
+		}
+
+		double delta = axisDelta(axes[mid], index, qx, qy, qz);
+		boolean leftFirst = delta <= 0;
+		if (leftFirst) {
+			searchNearest(lo, mid, qx, qy, qz, heap);
+		} else {
+			searchNearest(mid + 1, hi, qx, qy, qz, heap);
+		}
+		if (!heap.isFull() || delta * delta <= heap.worst()) {
+			if (leftFirst) {
+				searchNearest(mid + 1, hi, qx, qy, qz, heap);
+			} else {
+				searchNearest(lo, mid, qx, qy, qz, heap);
+			}
+		}
+	}
+
+	/* Signed distance from the query to the splitting plane of a node */
+	private double axisDelta(int axis, int index, double qx, double qy, double qz) {
+		return switch (axis) {
+			case 0 -> qx - xs[index];
+			case 1 -> qy - ys[index];
+			default -> qz - zs[index];
+		};
+	}
+
+	/**
+	 * Fixed capacity max-heap of (index, squared chord), keeps the closest entries offered.
+	 */
+	private static class BoundedMaxHeap {
+		private final int[] indexes;
+		private final double[] keys;
+		private int size;
+
+		BoundedMaxHeap(int capacity) {
+			indexes = new int[capacity];
+			keys = new double[capacity];
+		}
+
+		boolean isFull() {
+			return size == keys.length;
+		}
+
+		double worst() {
+			return keys[0];
+		}
+
+		void offer(int index, double key) {
+			if (!isFull()) {
+				indexes[size] = index;
+				keys[size] = key;
+				siftUp(size++);
+			} else if (key < keys[0]) {
+				indexes[0] = index;
+				keys[0] = key;
+				siftDown(0, size);
+			}
+		}
+
+		void drainAscending(int[] sortedIndexes, double[] sortedKeys) {
+			for (int last = size - 1; last >= 0; last--) {
+				sortedIndexes[last] = indexes[0];
+				sortedKeys[last] = keys[0];
+				swap(0, last);
+				siftDown(0, last);
+			}
+			size = 0;
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (keys[parent] >= keys[i]) {
+					return;
+				}
+				swap(parent, i);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i, int end) {
+			while (true) {
+				int largest = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < end && keys[left] > keys[largest]) largest = left;
+				if (right < end && keys[right] > keys[largest]) largest = right;
+				if (largest == i) {
+					return;
+				}
+				swap(i, largest);
+				i = largest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			int index = indexes[i];
+			indexes[i] = indexes[j];
+			indexes[j] = index;
+			double key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.openclassrooms.tourguide.attraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Proximity regions of the attractions of an {@link AttractionIndex} at a fixed distance, on a
+ * latitude/longitude grid.
+ * <p>
+ * The region of an attraction is the set of cells overlapping the bounding box of the spherical cap
+ * of radius {@code miles} around it. A location is classified by the lookup of its own cell, which
+ * lists the attractions whose region covers it; only those candidates get an exact distance check.
+ * Cells are about as wide as the radius, so an attraction covers a handful of them away from the poles.
+ * <p>
+ * A layer is immutable once built: a new distance means a new layer.
+ */
+public class GeofenceLayer {
+	// Below a few miles, smaller cells would only grow the layer
+	private static final double MIN_CELL_DEGREES = 0.05;
+	// Rounding margin, so that the regions never miss a location at exactly the radius
+	private static final double MARGIN_DEGREES = 1e-9;
+
+	private final AttractionIndex index;
+	private final double miles;
+	private final double squaredChord;
+	// A radius of a quarter of the sphere or more: every attraction is a candidate everywhere
+	private final boolean global;
+	private final double cellDegrees;
+	private final int rows;
+	private final int columns;
+	// Cells covered by at least one region, sorted, and their attractions in catalogue order
+	private final long[] cellKeys;
+	private final int[] cellOffsets;
+	private final int[] cellAttractions;
+
+	public GeofenceLayer(AttractionIndex index, double miles) {
+		this.index = index;
+		this.miles = miles;
+		this.squaredChord = SphericalGeometry.squaredChordForMiles(miles);
+		double angle = miles / SphericalGeometry.MILES_PER_RADIAN;
+		this.global = angle >= Math.PI / 2;
+		// Whole number of columns around the sphere, so that regions wrap around the antimeridian
+		this.columns = (int) Math.max(1, Math.floor(360 / Math.max(MIN_CELL_DEGREES, Math.toDegrees(angle))));
+		this.cellDegrees = 360.0 / columns;
+		this.rows = (int) Math.ceil(180 / cellDegrees);
+
+		Map<Long, List<Integer>> cells = new TreeMap<>();
+		if (!global) {
+			for (int attraction = 0; attraction < index.size(); attraction++) {
+				addRegion(attraction, angle, cells);
+			}
+		}
+
+		cellKeys = new long[cells.size()];
+		cellOffsets = new int[cells.size() + 1];
+		cellAttractions = new int[cells.values().stream().mapToInt(List::size).sum()];
+		int cell = 0;
+		int offset = 0;
+		for (Map.Entry<Long, List<Integer>> entry : cells.entrySet()) {
+			cellKeys[cell] = entry.getKey();
+			for (int attraction : entry.getValue()) {
+				cellAttractions[offset++] = attraction;
+			}
+			cellOffsets[++cell] = offset;
+		}
+	}
+
+	public double getMiles() {
+		return miles;
+	}
+
+	/**
+	 * Number of cells covered by at least one region
+	 */
+	public int getCellCount() {
+		return cellKeys.length;
+	}
+
+	/**
+	 * Writes the catalogue indexes of the attractions whose region covers the location, in ascending
+	 * order, to {@code found}. Candidates may be farther than the radius, attractions within it are
+	 * always candidates.
+	 *
+	 * @param found at least {@link AttractionIndex#size()} long
+	 * @return the number of candidates
+	 */
+	public int candidates(Location location, int[] found) {
+		if (global) {
+			Arrays.setAll(found, i -> i);
+			return index.size();
+		}
+		int cell = Arrays.binarySearch(cellKeys, cellKey(row(location.latitude), column(location.longitude)));
+		if (cell < 0) {
+			return 0;
+		}
+		int count = cellOffsets[cell + 1] - cellOffsets[cell];
+		System.arraycopy(cellAttractions, cellOffsets[cell], found, 0, count);
+		return count;
+	}
+
+	/**
+	 * Same result as {@link AttractionIndex#withinMiles(Location, double, int[])} at the distance of the
+	 * layer, computed from the candidates of the location's cell
+	 *
+	 * @param found at least {@link AttractionIndex#size()} long
+	 * @return the number of attractions found
+	 */
+	public int withinMiles(Location location, int[] found) {
+		return withinSquaredChord(location, squaredChord, found);
+	}
+
+	/**
+	 * Same as {@link #withinMiles(Location, int[])} at a shorter distance: the regions at the distance of
+	 * the layer also cover every location within a shorter one
+	 *
+	 * @param miles not greater than {@link #getMiles()}
+	 */
+	public int withinMiles(Location location, double miles, int[] found) {
+		if (miles > this.miles) {
+			throw new IllegalArgumentException(miles + " miles is beyond the " + this.miles + " miles of the layer");
+		}
+		return withinSquaredChord(location, SphericalGeometry.squaredChordForMiles(miles), found);
+	}
+
+	/**
+	 * Attractions within the distance of the layer, in catalogue order
+	 */
+	public List<Attraction> withinMiles(Location location) {
+		int[] found = new int[index.size()];
+		int count = withinMiles(location, found);
+
+		List<Attraction> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(index.getAttraction(found[i]));
+		}
+		return result;
+	}
+
+	private int withinSquaredChord(Location location, double squaredChord, int[] found) {
+		int candidateCount = candidates(location, found);
+		if (candidateCount == 0 || squaredChord == Double.POSITIVE_INFINITY) {
+			return candidateCount;
+		}
+
+		double lat = Math.toRadians(location.latitude);
+		double lon = Math.toRadians(location.longitude);
+		double cosLat = Math.cos(lat);
+		double x = cosLat * Math.cos(lon);
+		double y = cosLat * Math.sin(lon);
+		double z = Math.sin(lat);
+		int count = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			if (index.squaredChordTo(found[i], x, y, z) <= squaredChord) {
+				found[count++] = found[i];
+			}
+		}
+		return count;
+	}
+
+	private void addRegion(int attraction, double angle, Map<Long, List<Integer>> cells) {
+		Attraction location = index.getAttraction(attraction);
+		double latitudeDelta = Math.toDegrees(angle) + MARGIN_DEGREES;
+		double minLatitude = location.latitude - latitudeDelta;
+		double maxLatitude = location.latitude + latitudeDelta;
+
+		// Widest longitude difference on the cap, every longitude once it reaches a pole
+		int firstColumn = 0;
+		int lastColumn = columns - 1;
+		double sinAngle = Math.sin(angle);
+		double cosLatitude = Math.cos(Math.toRadians(location.latitude));
+		if (minLatitude > -90 && maxLatitude < 90 && sinAngle < cosLatitude) {
+			double longitudeDelta = Math.toDegrees(Math.asin(sinAngle / cosLatitude)) + MARGIN_DEGREES;
+			int first = (int) Math.floor((location.longitude - longitudeDelta + 180) / cellDegrees);
+			int last = (int) Math.floor((location.longitude + longitudeDelta + 180) / cellDegrees);
+			if (last - first < columns) {
+				firstColumn = first;
+				lastColumn = last;
+			}
+		}
+
+		for (int row = row(minLatitude); row <= row(maxLatitude); row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				cells.computeIfAbsent(cellKey(row, Math.floorMod(column, columns)), key -> new ArrayList<>()).add(attraction);
+			}
+		}
+	}
+
+	private int row(double latitude) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees)));
+	}
+
+	private int column(double longitude) {
+		return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+	}
+
+	private long cellKey(int row, int column) {
+		return (long) row * columns + column;
+	}
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.tourguide.attraction;
+
+import gpsUtil.location.Location;
+
+/**
+ * Great-circle distances computed from chords between unit vectors.
+ * <p>
+ * A point at (latitude, longitude) is projected on the unit sphere as
+ * (cos lat cos lon, cos lat sin lon, sin lat). The straight chord {@code c} between two
+ * projections is monotonic with the angle between them, {@code angle = 2 asin(c / 2)}, so
+ * comparing a squared chord with a threshold is the same as comparing distances, without
+ * any trigonometry once the points are projected.
+ * <p>
+ * Distances derived from chords stay within {@link #DISTANCE_TOLERANCE_MILES} of the spherical
+ * law of cosines used by {@code RewardsService.getDistance}. The law of cosines loses precision
+ * below a few feet (acos is ill-conditioned near 1), the chord does not.
+ */
+public final class SphericalGeometry {
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	public static final double MILES_PER_RADIAN = 60 * Math.toDegrees(1) * STATUTE_MILES_PER_NAUTICAL_MILE;
+	public static final double DISTANCE_TOLERANCE_MILES = 1e-3;
+
+	private SphericalGeometry() {
+	}
+
+	/**
+	 * Squared chord of a great-circle distance, {@link Double#POSITIVE_INFINITY} when the distance
+	 * covers the whole sphere
+	 */
+	public static double squaredChordForMiles(double miles) {
+		double angle = miles / MILES_PER_RADIAN;
+		if (angle >= Math.PI) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double chord = 2 * Math.sin(angle / 2);
+		return chord * chord;
+	}
+
+	public static double milesForSquaredChord(double squaredChord) {
+		// Rounding can push the chord of antipodal points slightly past the diameter
+		double halfChord = Math.min(1, Math.sqrt(squaredChord) / 2);
+		return 2 * Math.asin(halfChord) * MILES_PER_RADIAN;
+	}
+
+	public static double squaredChord(double x1, double y1, double z1, double x2, double y2, double z2) {
+		double dx = x1 - x2;
+		double dy = y1 - y2;
+		double dz = z1 - z2;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	public static double distanceMiles(Location location1, Location location2) {
+		double lat1 = Math.toRadians(location1.latitude);
+		double lon1 = Math.toRadians(location1.longitude);
+		double lat2 = Math.toRadians(location2.latitude);
+		double lon2 = Math.toRadians(location2.longitude);
+		double cosLat1 = Math.cos(lat1);
+		double cosLat2 = Math.cos(lat2);
+		return milesForSquaredChord(squaredChord(
+				cosLat1 * Math.cos(lon1), cosLat1 * Math.sin(lon1), Math.sin(lat1),
+				cosLat2 * Math.cos(lon2), cosLat2 * Math.sin(lon2), Math.sin(lat2)));
+	}
+}
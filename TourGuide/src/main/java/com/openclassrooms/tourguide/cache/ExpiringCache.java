@@ -0,0 +1,253 @@
+package com.openclassrooms.tourguide.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Bounded in-memory cache, entries are evicted when least recently used once the cache is full,
+ * or when older than the time to live.
+ * <p>
+ * Every key belongs to a group (for instance the user it was computed for) so that all entries
+ * of a group can be invalidated at once without scanning the cache.
+ * Hits, misses and evictions are published with the standard Micrometer cache meters.
+ * <p>
+ * Entries are split in stripes by group, each stripe with its own lock and its own share of the
+ * maximum size, so the least recently used order is kept per stripe. Small caches have a single
+ * stripe.
+ * <p>
+ * A value computed while its group may be invalidated is stored with {@link #put(Object, Object, long)}
+ * and the {@link #stamp(Object)} taken before the computation started: it is dropped if an
+ * invalidation happened meanwhile, instead of bringing the invalidated value back.
+ */
+public class ExpiringCache<K, V> implements MeterBinder {
+	// Below this number of entries per stripe, more stripes would only blur the eviction order
+	private static final int MIN_STRIPE_SIZE = 1024;
+	private static final int MAX_STRIPES = 64;
+
+	private final String name;
+	private final long timeToLiveNanos;
+	private final Function<K, Object> groupOf;
+	private final List<Stripe> stripes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public ExpiringCache(String name, int maximumSize, Duration timeToLive, Function<K, Object> groupOf) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+		}
+		this.name = name;
+		this.timeToLiveNanos = timeToLive.toNanos();
+		this.groupOf = groupOf;
+		int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, maximumSize / MIN_STRIPE_SIZE)));
+		List<Stripe> stripes = new ArrayList<>(stripeCount);
+		for (int i = 0; i < stripeCount; i++) {
+			stripes.add(new Stripe(maximumSize / stripeCount + (i < maximumSize % stripeCount ? 1 : 0)));
+		}
+		this.stripes = List.copyOf(stripes);
+	}
+
+	/**
+	 * @return the cached value, or null when absent or expired
+	 */
+	public V get(K key) {
+		return stripeOf(key).get(key);
+	}
+
+	public void put(K key, V value) {
+		stripeOf(key).put(key, value, -1);
+	}
+
+	/**
+	 * Invalidation stamp of the key, to be taken before computing a value stored with {@link #put(Object, Object, long)}
+	 */
+	public long stamp(K key) {
+		return stripeOf(key).stamp();
+	}
+
+	/**
+	 * Stores the value unless the key may have been invalidated since the stamp was taken. An
+	 * invalidation of another group of the same stripe also drops the value: the next get is a miss.
+	 *
+	 * @return false when the value was dropped
+	 */
+	public boolean put(K key, V value, long stamp) {
+		return stripeOf(key).put(key, value, stamp);
+	}
+
+	public void invalidate(K key) {
+		stripeOf(key).invalidate(key);
+	}
+
+	public void invalidateGroup(Object group) {
+		stripeOfGroup(group).invalidateGroup(group);
+	}
+
+	public void invalidateAll() {
+		for (Stripe stripe : stripes) {
+			stripe.invalidateAll();
+		}
+	}
+
+	public Object getGroup(K key) {
+		return groupOf.apply(key);
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("cache.size", this, ExpiringCache::size)
+				.tag("cache", name)
+				.description("The number of entries in this cache")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", this, ExpiringCache::getHitCount)
+				.tags("cache", name, "result", "hit")
+				.description("The number of times cache lookup methods have returned a cached value")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", this, ExpiringCache::getMissCount)
+				.tags("cache", name, "result", "miss")
+				.description("The number of times cache lookup methods have not returned a value")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", this, ExpiringCache::getEvictionCount)
+				.tag("cache", name)
+				.description("The number of entries evicted for size or expiration")
+				.register(registry);
+	}
+
+	private Stripe stripeOf(K key) {
+		return stripeOfGroup(groupOf.apply(key));
+	}
+
+	private Stripe stripeOfGroup(Object group) {
+		int hash = group.hashCode();
+		return stripes.get((hash ^ (hash >>> 16)) & (stripes.size() - 1));
+	}
+
+	/**
+	 * Entries of the groups hashed to the stripe, all keys of a group are in the same stripe
+	 */
+	private class Stripe {
+		private final int maximumSize;
+		// Access ordered: the eldest entry is the least recently used
+		private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+		private final Map<Object, Set<K>> groups = new HashMap<>();
+		// Incremented by every invalidation of the stripe
+		private long invalidations;
+
+		Stripe(int maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		synchronized V get(K key) {
+			Entry<V> entry = entries.get(key);
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			if (entry.isExpired(System.nanoTime())) {
+				remove(key);
+				evictions.increment();
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.value;
+		}
+
+		synchronized long stamp() {
+			return invalidations;
+		}
+
+		/**
+		 * @param stamp -1 to store the value whatever the invalidations
+		 */
+		synchronized boolean put(K key, V value, long stamp) {
+			if (stamp >= 0 && stamp != invalidations) {
+				return false;
+			}
+			if (entries.put(key, new Entry<>(value, System.nanoTime() + timeToLiveNanos)) == null) {
+				groups.computeIfAbsent(groupOf.apply(key), group -> new HashSet<>()).add(key);
+			}
+
+			if (entries.size() > maximumSize) {
+				Iterator<K> leastRecentlyUsed = entries.keySet().iterator();
+				remove(leastRecentlyUsed.next());
+				evictions.increment();
+			}
+			return true;
+		}
+
+		synchronized void invalidate(K key) {
+			invalidations++;
+			remove(key);
+		}
+
+		synchronized void invalidateGroup(Object group) {
+			invalidations++;
+			Set<K> keys = groups.remove(group);
+			if (keys != null) {
+				keys.forEach(entries::remove);
+			}
+		}
+
+		synchronized void invalidateAll() {
+			invalidations++;
+			entries.clear();
+			groups.clear();
+		}
+
+		synchronized int size() {
+			return entries.size();
+		}
+
+		private void remove(K key) {
+			if (entries.remove(key) != null) {
+				Object group = groupOf.apply(key);
+				Set<K> keys = groups.get(group);
+				if (keys != null && keys.remove(key) && keys.isEmpty()) {
+					groups.remove(group);
+				}
+			}
+		}
+	}
+
+	private record Entry<V>(V value, long expiresAt) {
+		boolean isExpired(long now) {
+			return now - expiresAt >= 0;
+		}
+	}
+}
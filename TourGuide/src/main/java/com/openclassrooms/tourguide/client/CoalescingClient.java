@@ -0,0 +1,199 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+
+/**
+ * Remote calls of a client, keyed by their arguments.
+ * <p>
+ * Calls are queued and run by at most {@code maxConcurrentCalls} workers, callers only get a
+ * {@link CompletableFuture}. Concurrent requests for the same key share a single call, and the
+ * values received are kept in an {@link ExpiringCache} for the next requests.
+ * <p>
+ * At most {@code maxPendingCalls} calls wait for a worker: past that, and once shut down, new
+ * calls fail with a {@link RejectedExecutionException}. Every call completes, even when the
+ * remote call throws an {@link Error}.
+ */
+class CoalescingClient<K, V> {
+
+	private final ThreadPoolExecutor executor;
+	private final Map<K, CompletableFuture<V>> inFlightCalls = new ConcurrentHashMap<>();
+	private final ExpiringCache<K, V> cache;
+	private final LongAdder remoteCalls = new LongAdder();
+	private final LongAdder coalescedCalls = new LongAdder();
+	private final LongAdder rejectedCalls = new LongAdder();
+
+	/**
+	 * @param name prefix of the worker thread names
+	 * @param cache receives the values of the calls
+	 */
+	CoalescingClient(String name, int maxConcurrentCalls, int maxPendingCalls, ExpiringCache<K, V> cache) {
+		if (maxConcurrentCalls < 1) {
+			throw new IllegalArgumentException("maxConcurrentCalls must be positive: " + maxConcurrentCalls);
+		}
+		if (maxPendingCalls < 1) {
+			throw new IllegalArgumentException("maxPendingCalls must be positive: " + maxPendingCalls);
+		}
+		this.executor = new ThreadPoolExecutor(
+				maxConcurrentCalls, maxConcurrentCalls,
+				30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(maxPendingCalls),
+				new DaemonThreadFactory(name),
+				new ThreadPoolExecutor.AbortPolicy()
+		);
+		// Idle workers are released between bursts
+		this.executor.allowCoreThreadTimeOut(true);
+		this.cache = cache;
+	}
+
+	/**
+	 * The cached value of the key, or the value of the call in flight for the key, or the value of a
+	 * new call to {@code remoteCall}
+	 */
+	CompletableFuture<V> get(K key, Function<K, V> remoteCall) {
+		V cachedValue = cache.get(key);
+		if (cachedValue != null) {
+			return CompletableFuture.completedFuture(cachedValue);
+		}
+
+		CompletableFuture<V> call = new CompletableFuture<>();
+
+		CompletableFuture<V> inFlightCall = inFlightCalls.putIfAbsent(key, call);
+		if (inFlightCall != null) {
+			coalescedCalls.increment();
+			return inFlightCall.copy();
+		}
+
+		remoteCalls.increment();
+		try {
+			executor.execute(new Call<>(this, key, call, remoteCall, cache.stamp(key)));
+		} catch (RejectedExecutionException e) {
+			rejectedCalls.increment();
+			inFlightCalls.remove(key, call);
+			call.completeExceptionally(e);
+		}
+		return call.copy();
+	}
+
+	/**
+	 * Drops the cached values of the group, and lets new requests start new calls instead of joining
+	 * the calls already in flight for the group, whose values will not be cached
+	 */
+	void invalidateGroup(Object group) {
+		inFlightCalls.keySet().removeIf(key -> group.equals(cache.getGroup(key)));
+		cache.invalidateGroup(group);
+	}
+
+	ExpiringCache<K, V> getCache() {
+		return cache;
+	}
+
+	int getMaxConcurrentCalls() {
+		return executor.getMaximumPoolSize();
+	}
+
+	int getPendingCalls() {
+		return executor.getQueue().size();
+	}
+
+	int getActiveCalls() {
+		return executor.getActiveCount();
+	}
+
+	long getRemoteCalls() {
+		return remoteCalls.sum();
+	}
+
+	long getCoalescedCalls() {
+		return coalescedCalls.sum();
+	}
+
+	/**
+	 * Calls refused because {@code maxPendingCalls} calls were already waiting, or after shutdown
+	 */
+	long getRejectedCalls() {
+		return rejectedCalls.sum();
+	}
+
+	/**
+	 * Interrupts the running calls, the calls still queued fail with a {@link RejectedExecutionException}
+	 */
+	void shutdown() {
+		for (Runnable queued : executor.shutdownNow()) {
+			rejectedCalls.increment();
+			((Call<?, ?>) queued).fail(new RejectedExecutionException("Client shut down"));
+		}
+	}
+
+	private static class Call<K, V> implements Runnable {
+		private final CoalescingClient<K, V> client;
+		private final K key;
+		private final CompletableFuture<V> future;
+		private final Function<K, V> remoteCall;
+		// Cache stamp when the call was requested, see ExpiringCache#put(Object, Object, long)
+		private final long stamp;
+
+		Call(CoalescingClient<K, V> client, K key, CompletableFuture<V> future, Function<K, V> remoteCall, long stamp) {
+			this.client = client;
+			this.key = key;
+			this.future = future;
+			this.remoteCall = remoteCall;
+			this.stamp = stamp;
+		}
+
+		@Override
+		public void run() {
+			V value = null;
+			Throwable failure = null;
+			try {
+				value = remoteCall.apply(key);
+				client.cache.put(key, value, stamp);
+			} catch (Throwable e) {
+				failure = e;
+			} finally {
+				complete(value, failure);
+			}
+		}
+
+		void fail(Throwable failure) {
+			complete(null, failure);
+		}
+
+		private void complete(V value, Throwable failure) {
+			// The call leaves inFlightCalls before completing: once completed, callers never join it again
+			client.inFlightCalls.remove(key, future);
+			if (failure == null) {
+				future.complete(value);
+			} else {
+				future.completeExceptionally(failure);
+			}
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
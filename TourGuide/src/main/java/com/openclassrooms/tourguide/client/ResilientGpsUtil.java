@@ -0,0 +1,37 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy;
+
+/**
+ * {@link GpsUtil} calling the library under a {@link ResiliencePolicy}.
+ */
+public class ResilientGpsUtil extends GpsUtil {
+
+	private final GpsUtil gpsUtil;
+	private final ResiliencePolicy policy;
+
+	public ResilientGpsUtil(GpsUtil gpsUtil, ResiliencePolicy policy) {
+		this.gpsUtil = gpsUtil;
+		this.policy = policy;
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return policy.call(() -> gpsUtil.getUserLocation(userId));
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return policy.call(gpsUtil::getAttractions);
+	}
+
+	public ResiliencePolicy getPolicy() {
+		return policy;
+	}
+}
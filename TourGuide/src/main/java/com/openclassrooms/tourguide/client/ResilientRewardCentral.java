@@ -0,0 +1,29 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy;
+
+/**
+ * {@link RewardCentral} calling the library under a {@link ResiliencePolicy}.
+ */
+public class ResilientRewardCentral extends RewardCentral {
+
+	private final RewardCentral rewardCentral;
+	private final ResiliencePolicy policy;
+
+	public ResilientRewardCentral(RewardCentral rewardCentral, ResiliencePolicy policy) {
+		this.rewardCentral = rewardCentral;
+		this.policy = policy;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return policy.call(() -> rewardCentral.getAttractionRewardPoints(attractionId, userId));
+	}
+
+	public ResiliencePolicy getPolicy() {
+		return policy;
+	}
+}
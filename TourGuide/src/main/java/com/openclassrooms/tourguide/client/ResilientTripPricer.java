@@ -0,0 +1,36 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy;
+
+/**
+ * {@link TripPricer} calling the library under a {@link ResiliencePolicy}.
+ */
+public class ResilientTripPricer extends TripPricer {
+
+	private final TripPricer tripPricer;
+	private final ResiliencePolicy policy;
+
+	public ResilientTripPricer(TripPricer tripPricer, ResiliencePolicy policy) {
+		this.tripPricer = tripPricer;
+		this.policy = policy;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return policy.call(() -> tripPricer.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints));
+	}
+
+	@Override
+	public String getProviderName(String apiKey, int adults) {
+		return tripPricer.getProviderName(apiKey, adults);
+	}
+
+	public ResiliencePolicy getPolicy() {
+		return policy;
+	}
+}
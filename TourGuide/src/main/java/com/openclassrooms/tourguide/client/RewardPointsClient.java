@@ -0,0 +1,91 @@
+package com.openclassrooms.tourguide.client;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+
+/**
+ * Non-blocking access to {@link RewardCentral}.
+ * <p>
+ * Calls are queued and run by at most {@code maxConcurrentCalls} workers, callers only get a
+ * {@link CompletableFuture} and never wait on the remote call themselves. Concurrent requests
+ * for the same (attraction, user) pair share a single remote call, and the points received
+ * are kept in an {@link ExpiringCache} for the next requests. Past {@code maxPendingCalls}
+ * queued calls, new calls fail with a {@link RejectedExecutionException}.
+ */
+public class RewardPointsClient {
+	public static final int DEFAULT_MAX_CONCURRENT_CALLS = 200;
+	// A reward calculation of every user queues about one call per nearby attraction
+	public static final int DEFAULT_MAX_PENDING_CALLS = 1_000_000;
+	public static final int DEFAULT_CACHE_MAXIMUM_SIZE = 100_000;
+	public static final Duration DEFAULT_CACHE_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+	private final RewardCentral rewardCentral;
+	private final CoalescingClient<RewardKey, Integer> calls;
+
+	public RewardPointsClient(RewardCentral rewardCentral) {
+		this(rewardCentral, DEFAULT_MAX_CONCURRENT_CALLS);
+	}
+
+	public RewardPointsClient(RewardCentral rewardCentral, int maxConcurrentCalls) {
+		this(rewardCentral, maxConcurrentCalls, DEFAULT_MAX_PENDING_CALLS, DEFAULT_CACHE_MAXIMUM_SIZE, DEFAULT_CACHE_TIME_TO_LIVE);
+	}
+
+	public RewardPointsClient(RewardCentral rewardCentral, int maxConcurrentCalls, int maxPendingCalls,
+			int cacheMaximumSize, Duration cacheTimeToLive) {
+		this.rewardCentral = rewardCentral;
+		this.calls = new CoalescingClient<>("reward-central", maxConcurrentCalls, maxPendingCalls,
+				new ExpiringCache<>("rewardPoints", cacheMaximumSize, cacheTimeToLive, RewardKey::userId));
+	}
+
+	public CompletableFuture<Integer> getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return calls.get(new RewardKey(attractionId, userId),
+				key -> rewardCentral.getAttractionRewardPoints(key.attractionId(), key.userId()));
+	}
+
+	/**
+	 * Forgets the cached points of the user, the next requests will call RewardCentral again
+	 */
+	public void invalidateUser(UUID userId) {
+		calls.invalidateGroup(userId);
+	}
+
+	public ExpiringCache<?, Integer> getCache() {
+		return calls.getCache();
+	}
+
+	public int getMaxConcurrentCalls() {
+		return calls.getMaxConcurrentCalls();
+	}
+
+	public int getPendingCalls() {
+		return calls.getPendingCalls();
+	}
+
+	public int getActiveCalls() {
+		return calls.getActiveCalls();
+	}
+
+	public long getRemoteCalls() {
+		return calls.getRemoteCalls();
+	}
+
+	public long getCoalescedCalls() {
+		return calls.getCoalescedCalls();
+	}
+
+	public long getRejectedCalls() {
+		return calls.getRejectedCalls();
+	}
+
+	public void shutdown() {
+		calls.shutdown();
+	}
+
+	private record RewardKey(UUID attractionId, UUID userId) {
+	}
+}
@@ -0,0 +1,72 @@
+package com.openclassrooms.tourguide.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+
+/**
+ * Non-blocking access to {@link TripPricer}.
+ * <p>
+ * Pricing runs on at most {@code maxConcurrentCalls} workers of the client, callers only get a
+ * {@link CompletableFuture}. Quotes are cached per (user, adults, children, duration, reward points)
+ * in an {@link ExpiringCache}, and concurrent requests for the same quote share a single call.
+ * Past {@code maxPendingCalls} queued quotes, new ones fail with a {@link RejectedExecutionException}.
+ */
+public class TripDealsClient {
+	public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+	public static final int DEFAULT_MAX_PENDING_CALLS = 10_000;
+	public static final int DEFAULT_CACHE_MAXIMUM_SIZE = 10_000;
+	public static final Duration DEFAULT_CACHE_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+	private final TripPricer tripPricer;
+	private final CoalescingClient<QuoteKey, List<Provider>> calls;
+
+	public TripDealsClient(TripPricer tripPricer) {
+		this(tripPricer, DEFAULT_MAX_CONCURRENT_CALLS, DEFAULT_MAX_PENDING_CALLS, DEFAULT_CACHE_MAXIMUM_SIZE, DEFAULT_CACHE_TIME_TO_LIVE);
+	}
+
+	public TripDealsClient(TripPricer tripPricer, int maxConcurrentCalls, int maxPendingCalls, int cacheMaximumSize,
+			Duration cacheTimeToLive) {
+		this.tripPricer = tripPricer;
+		this.calls = new CoalescingClient<>("trip-pricer", maxConcurrentCalls, maxPendingCalls,
+				new ExpiringCache<>("tripDeals", cacheMaximumSize, cacheTimeToLive, QuoteKey::userId));
+	}
+
+	public CompletableFuture<List<Provider>> getPrice(String apiKey, UUID userId, int adults, int children,
+			int nightsStay, int rewardsPoints) {
+		return calls.get(new QuoteKey(userId, adults, children, nightsStay, rewardsPoints),
+				key -> List.copyOf(tripPricer.getPrice(apiKey, key.userId(), key.adults(), key.children(), key.nightsStay(), key.rewardsPoints())));
+	}
+
+	/**
+	 * Forgets the cached quotes of the user, the next requests will price again
+	 */
+	public void invalidateUser(UUID userId) {
+		calls.invalidateGroup(userId);
+	}
+
+	public ExpiringCache<?, List<Provider>> getCache() {
+		return calls.getCache();
+	}
+
+	public long getRemoteCalls() {
+		return calls.getRemoteCalls();
+	}
+
+	public long getRejectedCalls() {
+		return calls.getRejectedCalls();
+	}
+
+	public void shutdown() {
+		calls.shutdown();
+	}
+
+	private record QuoteKey(UUID userId, int adults, int children, int nightsStay, int rewardsPoints) {
+	}
+}
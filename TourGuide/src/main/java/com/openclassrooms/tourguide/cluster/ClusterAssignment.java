@@ -0,0 +1,67 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Share of the users this instance works on: the users the {@link ConsistentHashRing} of the
+ * current cluster members assigns to it. Joins the cluster on creation, and rebuilds the ring
+ * whenever a member joins or leaves.
+ */
+public class ClusterAssignment {
+	private final Logger logger = LoggerFactory.getLogger(ClusterAssignment.class);
+
+	private final ClusterMembership membership;
+	private final String memberId;
+	private final int virtualNodes;
+	private final Consumer<Set<String>> listener = this::rebalance;
+	private volatile ConsistentHashRing ring;
+
+	public ClusterAssignment(ClusterMembership membership, String memberId, int virtualNodes) {
+		this.membership = membership;
+		this.memberId = memberId;
+		this.virtualNodes = virtualNodes;
+		this.ring = new ConsistentHashRing(Set.of(memberId), virtualNodes);
+
+		membership.addListener(listener);
+		membership.join(memberId);
+	}
+
+	/**
+	 * Assignment of an instance running alone: it owns every user
+	 */
+	public static ClusterAssignment standalone() {
+		return new ClusterAssignment(new StandaloneClusterMembership(), "standalone", 1);
+	}
+
+	public boolean owns(UUID userId) {
+		return memberId.equals(ring.ownerOf(userId));
+	}
+
+	public String getMemberId() {
+		return memberId;
+	}
+
+	public Set<String> getMembers() {
+		return membership.getMembers();
+	}
+
+	/**
+	 * Leaves the cluster, the other members take over the users of this instance
+	 */
+	public void leave() {
+		membership.removeListener(listener);
+		membership.leave(memberId);
+	}
+
+	private void rebalance(Set<String> members) {
+		// Until it has joined, and after it left, the instance only counts on itself
+		Set<String> ringMembers = members.contains(memberId) ? members : Set.of(memberId);
+		ring = new ConsistentHashRing(ringMembers, virtualNodes);
+		logger.debug("Cluster member {} rebalanced over {} members", memberId, ringMembers.size());
+	}
+}
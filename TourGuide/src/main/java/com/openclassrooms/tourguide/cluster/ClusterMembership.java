@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Coordination backend: which TourGuide instances are members of the cluster right now.
+ */
+public interface ClusterMembership {
+
+	void join(String memberId);
+
+	void leave(String memberId);
+
+	Set<String> getMembers();
+
+	/**
+	 * Calls the listener with the members after every change, and once right away
+	 */
+	void addListener(Consumer<Set<String>> listener);
+
+	void removeListener(Consumer<Set<String>> listener);
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.tourguide.cluster;
+
+/**
+ * Creates the {@link ClusterMembership} backend selected by configuration.
+ */
+public class ClusterMemberships {
+
+	private ClusterMemberships() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * @param backend {@value StandaloneClusterMembership#NAME} (this instance only) or
+	 * {@value LoopbackClusterMembership#NAME} (instances of this JVM with the same cluster name)
+	 */
+	public static ClusterMembership create(String backend, String clusterName) {
+		switch (backend) {
+			case StandaloneClusterMembership.NAME:
+				return new StandaloneClusterMembership();
+			case LoopbackClusterMembership.NAME:
+				return new LoopbackClusterMembership(clusterName);
+			default:
+				throw new IllegalArgumentException("Unknown cluster backend: " + backend);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Restricts a {@link TrackingSchedule} to the users this instance owns in the cluster.
+ * <p>
+ * Users owned by other members stay in the schedule and are skipped as soon as they are due,
+ * without being completed: their interval is not adapted as if they had been tracked here, so
+ * after a rebalance each instance picks up its new users within the initial interval of the schedule.
+ */
+public class ClusterTrackingSchedule implements TrackingSchedule, MeterBinder {
+
+	private final TrackingSchedule schedule;
+	private final ClusterAssignment assignment;
+	private final LongAdder skippedUsers = new LongAdder();
+
+	public ClusterTrackingSchedule(TrackingSchedule schedule, ClusterAssignment assignment) {
+		this.schedule = schedule;
+		this.assignment = assignment;
+	}
+
+	@Override
+	public void add(User user, long dueTime) {
+		schedule.add(user, dueTime);
+	}
+
+	@Override
+	public List<User> pollDue(long now) {
+		List<User> dueUsers = schedule.pollDue(now);
+		List<User> ownedUsers = new ArrayList<>(dueUsers.size());
+		for (User user : dueUsers) {
+			if (assignment.owns(user.getUserId())) {
+				ownedUsers.add(user);
+			} else {
+				schedule.skipped(user, now);
+				skippedUsers.increment();
+			}
+		}
+		return ownedUsers;
+	}
+
+	@Override
+	public void completed(User user, long now) {
+		schedule.completed(user, now);
+	}
+
+	@Override
+	public void skipped(User user, long now) {
+		schedule.skipped(user, now);
+	}
+
+	@Override
+	public long getNextDueTime() {
+		return schedule.getNextDueTime();
+	}
+
+	@Override
+	public int size() {
+		return schedule.size();
+	}
+
+	public TrackingSchedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Due users left to the other members of the cluster
+	 */
+	public long getSkippedUsers() {
+		return skippedUsers.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if (schedule instanceof MeterBinder scheduleMetrics) {
+			scheduleMetrics.bindTo(registry);
+		}
+		FunctionCounter.builder("tracker.cluster.skipped", this, ClusterTrackingSchedule::getSkippedUsers)
+				.tag("member", assignment.getMemberId())
+				.description("The number of due users left to other cluster members")
+				.register(registry);
+	}
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent hash ring of cluster members, each member placed at several virtual nodes.
+ * <p>
+ * A user belongs to the first member clockwise from the hash of its id. When a member joins or
+ * leaves, only the users of the ring arcs it gains or loses change owner, about 1 / members of them.
+ * Immutable: a new ring is built on each membership change.
+ */
+public class ConsistentHashRing {
+	public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	private final TreeMap<Long, String> ring = new TreeMap<>();
+
+	public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+		for (String member : members) {
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.put(mix(member.hashCode() * 0x9E3779B97F4A7C15L + i), member);
+			}
+		}
+	}
+
+	/**
+	 * Member owning the user, null when the ring has no member
+	 */
+	public String ownerOf(UUID userId) {
+		if (ring.isEmpty()) {
+			return null;
+		}
+		Map.Entry<Long, String> entry = ring.ceilingEntry(mix(userId.getMostSignificantBits() ^ userId.getLeastSignificantBits()));
+		return (entry != null ? entry : ring.firstEntry()).getValue();
+	}
+
+	public boolean isEmpty() {
+		return ring.isEmpty();
+	}
+
+	/* 64-bit finalizer of MurmurHash3, spreads close inputs over the whole ring */
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb93e5a0b3e35L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory coordination backend shared by every instance of the same JVM, by cluster name.
+ * Runs several TourGuide application contexts side by side as a cluster, for tests and local runs.
+ */
+public class LoopbackClusterMembership implements ClusterMembership {
+	public static final String NAME = "loopback";
+
+	private static final Map<String, Cluster> CLUSTERS = new ConcurrentHashMap<>();
+
+	private final Cluster cluster;
+
+	public LoopbackClusterMembership(String clusterName) {
+		this.cluster = CLUSTERS.computeIfAbsent(clusterName, name -> new Cluster());
+	}
+
+	@Override
+	public void join(String memberId) {
+		cluster.update(members -> members.add(memberId));
+	}
+
+	@Override
+	public void leave(String memberId) {
+		cluster.update(members -> members.remove(memberId));
+	}
+
+	@Override
+	public Set<String> getMembers() {
+		return cluster.members;
+	}
+
+	@Override
+	public void addListener(Consumer<Set<String>> listener) {
+		cluster.listeners.add(listener);
+		listener.accept(cluster.members);
+	}
+
+	@Override
+	public void removeListener(Consumer<Set<String>> listener) {
+		cluster.listeners.remove(listener);
+	}
+
+	private static class Cluster {
+		private final CopyOnWriteArrayList<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+		private volatile Set<String> members = Set.of();
+
+		/* Changes are serialized so that every listener sees them in the same order */
+		synchronized void update(Predicate<Set<String>> change) {
+			Set<String> newMembers = new TreeSet<>(members);
+			if (change.test(newMembers)) {
+				members = Set.copyOf(newMembers);
+				listeners.forEach(listener -> listener.accept(members));
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.tourguide.cluster;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cluster of this instance only, the default: the instance tracks every user.
+ */
+public class StandaloneClusterMembership implements ClusterMembership {
+	public static final String NAME = "standalone";
+
+	private final CopyOnWriteArrayList<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+	private volatile Set<String> members = Set.of();
+
+	@Override
+	public void join(String memberId) {
+		members = Set.of(memberId);
+		listeners.forEach(listener -> listener.accept(members));
+	}
+
+	@Override
+	public void leave(String memberId) {
+		if (members.contains(memberId)) {
+			members = Set.of();
+			listeners.forEach(listener -> listener.accept(members));
+		}
+	}
+
+	@Override
+	public Set<String> getMembers() {
+		return members;
+	}
+
+	@Override
+	public void addListener(Consumer<Set<String>> listener) {
+		listeners.add(listener);
+		listener.accept(members);
+	}
+
+	@Override
+	public void removeListener(Consumer<Set<String>> listener) {
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.tourguide.event;
+
+import gpsUtil.location.VisitedLocation;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * A location appended to the history of a user.
+ *
+ * @param sequence sequence number of the location in the user's history
+ */
+public record LocationEvent(User user, long sequence, VisitedLocation visitedLocation) {
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.tourguide.event;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.openclassrooms.tourguide.tracker.PipelineStage;
+
+/**
+ * In-process bus delivering the locations appended to the users' histories to its subscribers.
+ * <p>
+ * Each subscriber drains its own bounded queue (an array ring buffer) with its own workers, so
+ * subscribers scale independently from location polling. {@link #publish(LocationEvent)} blocks
+ * while a subscriber's queue is full: a slow subscriber pushes back on the publishers instead of
+ * letting events pile up in memory.
+ */
+public class LocationEventBus {
+	private final Logger logger = LoggerFactory.getLogger(LocationEventBus.class);
+
+	private final Map<String, PipelineStage<LocationEvent>> subscribers = new ConcurrentHashMap<>();
+
+	/**
+	 * Starts delivering the events published from now on to the handler
+	 *
+	 * @param workers threads running the handler
+	 * @param queueCapacity events waiting for a worker before publishers block
+	 * @return the subscriber's queue and its statistics
+	 */
+	public PipelineStage<LocationEvent> subscribe(String name, int workers, int queueCapacity, Consumer<LocationEvent> handler) {
+		PipelineStage<LocationEvent> subscriber = new PipelineStage<>("event-" + name, workers, queueCapacity,
+				handler, null, event -> {
+				});
+		if (subscribers.putIfAbsent(name, subscriber) != null) {
+			throw new IllegalArgumentException("Already subscribed: " + name);
+		}
+		subscriber.start();
+		return subscriber;
+	}
+
+	/**
+	 * Stops the subscriber's workers, the events still queued are dropped
+	 */
+	public void unsubscribe(String name) {
+		PipelineStage<LocationEvent> subscriber = subscribers.remove(name);
+		if (subscriber != null) {
+			subscriber.shutdown();
+		}
+	}
+
+	public boolean isSubscribed(String name) {
+		return subscribers.containsKey(name);
+	}
+
+	/**
+	 * Queues the event for every subscriber, waiting for space in full queues
+	 */
+	public void publish(LocationEvent event) {
+		for (PipelineStage<LocationEvent> subscriber : subscribers.values()) {
+			try {
+				subscriber.submit(event);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.debug("Location event of user {} not delivered to {}", event.user().getUserId(), subscriber.getName());
+				return;
+			}
+		}
+	}
+
+	public void shutdown() {
+		subscribers.keySet().forEach(this::unsubscribe);
+	}
+}
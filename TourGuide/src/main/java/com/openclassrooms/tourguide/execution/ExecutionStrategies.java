@@ -0,0 +1,45 @@
+package com.openclassrooms.tourguide.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the {@link ExecutionStrategy} selected by configuration.
+ */
+public class ExecutionStrategies {
+	private static final Logger logger = LoggerFactory.getLogger(ExecutionStrategies.class);
+
+	private ExecutionStrategies() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * Fork/join pool sized to absorb blocking calls: 10 threads per processor, 50 minimum (for CICD)
+	 */
+	public static ForkJoinExecutionStrategy forkJoin() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int poolSize = Math.max(50, processors * 10);
+		logger.debug("Initializing ForkJoinPool with pool size {} for {} available processors", poolSize, processors);
+		return new ForkJoinExecutionStrategy(poolSize);
+	}
+
+	/**
+	 * @param name {@value ForkJoinExecutionStrategy#NAME} or {@value VirtualThreadExecutionStrategy#NAME}
+	 * @param maxConcurrentTasks tasks allowed to call the downstream services at once, virtual threads only
+	 */
+	public static ExecutionStrategy create(String name, int maxConcurrentTasks) {
+		switch (name) {
+			case ForkJoinExecutionStrategy.NAME:
+				return forkJoin();
+			case VirtualThreadExecutionStrategy.NAME:
+				if (VirtualThreadExecutionStrategy.isSupported()) {
+					return new VirtualThreadExecutionStrategy(maxConcurrentTasks);
+				}
+				logger.warn("Virtual threads are not available on Java {}, falling back to the {} strategy",
+						Runtime.version().feature(), ForkJoinExecutionStrategy.NAME);
+				return forkJoin();
+			default:
+				throw new IllegalArgumentException("Unknown execution strategy: " + name);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.execution;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Runs one task per item of a bulk operation (tracking or rewarding every user).
+ */
+public interface ExecutionStrategy {
+
+	/**
+	 * Applies the task to every item and waits for all of them.
+	 *
+	 * @return the task results, in the order of the items
+	 */
+	<T, R> List<R> map(List<T> items, Function<T, R> task);
+
+	String getName();
+
+	void shutdown();
+}
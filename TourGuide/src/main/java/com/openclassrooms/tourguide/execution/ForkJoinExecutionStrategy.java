@@ -0,0 +1,55 @@
+package com.openclassrooms.tourguide.execution;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Parallel stream run inside a dedicated, oversized {@link ForkJoinPool}, the extra workers
+ * absorb the time spent blocked in GpsUtil and RewardCentral.
+ * <p>
+ * The pool is bound as the {@code execution} executor: {@code executor.queued}, {@code executor.active},
+ * {@code executor.running} and {@code executor.steals} show how busy it is.
+ */
+public class ForkJoinExecutionStrategy implements ExecutionStrategy, MeterBinder {
+	public static final String NAME = "fork-join";
+
+	private final ForkJoinPool forkJoinPool;
+
+	public ForkJoinExecutionStrategy(int poolSize) {
+		this.forkJoinPool = new ForkJoinPool(poolSize);
+	}
+
+	@Override
+	public <T, R> List<R> map(List<T> items, Function<T, R> task) {
+		return forkJoinPool.submit(() ->
+				items.parallelStream()
+						.map(task)
+						.toList()
+		).join();
+	}
+
+	public int getPoolSize() {
+		return forkJoinPool.getParallelism();
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		new ExecutorServiceMetrics(forkJoinPool, "execution", Tags.of("strategy", NAME)).bindTo(registry);
+	}
+
+	@Override
+	public void shutdown() {
+		forkJoinPool.shutdownNow();
+	}
+}
@@ -0,0 +1,94 @@
+package com.openclassrooms.tourguide.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * One virtual thread per task, a semaphore bounds how many tasks call the downstream services at once.
+ * <p>
+ * Virtual threads need a Java 21 runtime, the project still compiles for Java 17 so the executor
+ * is looked up at runtime: check {@link #isSupported()} before creating this strategy.
+ * <p>
+ * Unverified: the build runs on Java 17, where TestPerformance skips this strategy, so it has
+ * never been measured against {@link ForkJoinExecutionStrategy} on 100,000 users.
+ */
+public class VirtualThreadExecutionStrategy implements ExecutionStrategy {
+	public static final String NAME = "virtual";
+
+	private final ExecutorService executorService;
+	private final Semaphore permits;
+
+	public VirtualThreadExecutionStrategy(int maxConcurrentTasks) {
+		if (!isSupported()) {
+			throw new IllegalStateException("Virtual threads need Java 21, running on Java " + Runtime.version().feature());
+		}
+		this.executorService = newVirtualThreadPerTaskExecutor();
+		this.permits = new Semaphore(maxConcurrentTasks);
+	}
+
+	public static boolean isSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public <T, R> List<R> map(List<T> items, Function<T, R> task) {
+		List<Future<R>> futures = new ArrayList<>(items.size());
+		for (T item : items) {
+			futures.add(executorService.submit(() -> {
+				permits.acquire();
+				try {
+					return task.apply(item);
+				} finally {
+					permits.release();
+				}
+			}));
+		}
+
+		List<R> results = new ArrayList<>(futures.size());
+		try {
+			for (Future<R> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		} catch (ExecutionException e) {
+			throw new CompletionException(e.getCause());
+		}
+		return results;
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void shutdown() {
+		executorService.shutdownNow();
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to create a virtual thread executor", e);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.persistence;
+
+import java.time.Duration;
+
+/**
+ * User persistence settings, bound to the {@code tourguide.persistence} properties.
+ */
+public class PersistenceProperties {
+
+	private boolean enabled = false;
+	// Holds the snapshot and the write-ahead log
+	private String directory = "data";
+	private Duration snapshotInterval = Duration.ofMinutes(5);
+	// Longest time a change waits in memory before it is written to the write-ahead log
+	private Duration flushInterval = Duration.ofSeconds(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public Duration getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(Duration snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public Duration getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(Duration flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.persistence;
+
+/**
+ * A snapshot or write-ahead log file cannot be read or written.
+ */
+public class SnapshotException extends RuntimeException {
+
+	public SnapshotException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
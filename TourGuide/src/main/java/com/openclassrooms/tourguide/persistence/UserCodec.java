@@ -0,0 +1,246 @@
+package com.openclassrooms.tourguide.persistence;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.LocationHistory;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Binary encoding of users and their changes, shared by the snapshot and the write-ahead log.
+ * <p>
+ * A user record holds the user fields, preferences, location history (sequence numbers included)
+ * and rewards. Locations are stored column by column, as in {@link LocationHistory}, so that they
+ * are copied in bulk: latitudes, longitudes, then epoch milliseconds. Strings are stored as UTF-8
+ * with a length prefix. Every buffer is little-endian, the byte order of common hardware. Attractions are stored with their fields and resolved by name on decoding, as
+ * GpsUtil gives them new ids on every call.
+ * <p>
+ * Encoding reuses per-thread scratch buffers, decoding reuses per-thread location arrays: an
+ * instance can be shared by the threads of a parallel restore.
+ */
+public class UserCodec {
+	private static final int INITIAL_SCRATCH_SIZE = 64 * 1024;
+	private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	private final Map<String, Attraction> attractions = new ConcurrentHashMap<>();
+	private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> allocate(INITIAL_SCRATCH_SIZE));
+	private final ThreadLocal<HistoryColumns> columns = ThreadLocal.withInitial(HistoryColumns::new);
+
+	/**
+	 * @param attractions known attractions, decoded rewards refer to them
+	 */
+	public UserCodec(Collection<Attraction> attractions) {
+		attractions.forEach(attraction -> this.attractions.put(attraction.attractionName, attraction));
+	}
+
+	/**
+	 * Encodes the user in a scratch buffer of the calling thread, valid until its next encoding
+	 *
+	 * @return the encoded user, ready to be read
+	 */
+	public ByteBuffer encodeUser(User user) {
+		while (true) {
+			ByteBuffer buffer = scratch.get();
+			buffer.clear();
+			try {
+				writeUser(buffer, user);
+				return buffer.flip();
+			} catch (BufferOverflowException e) {
+				scratch.set(allocate(buffer.capacity() * 2));
+			}
+		}
+	}
+
+	public User decodeUser(ByteBuffer buffer) {
+		UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+		String userName = getString(buffer);
+		String phoneNumber = getString(buffer);
+		String emailAddress = getString(buffer);
+		long latestLocationTimestamp = buffer.getLong();
+		long lastAccessTime = buffer.getLong();
+		UserPreferences preferences = new UserPreferences();
+		preferences.setAttractionProximity(buffer.getInt());
+		preferences.setTripDuration(buffer.getInt());
+		preferences.setTicketQuantity(buffer.getInt());
+		preferences.setNumberOfAdults(buffer.getInt());
+		preferences.setNumberOfChildren(buffer.getInt());
+
+		int retention = buffer.getInt();
+		User user = new User(userId, userName, phoneNumber, emailAddress, retention);
+		user.setUserPreferences(preferences);
+		if (latestLocationTimestamp != NO_TIMESTAMP) {
+			user.setLatestLocationTimestamp(new Date(latestLocationTimestamp));
+		}
+		user.recordAccess(lastAccessTime);
+
+		long appendedCount = buffer.getLong();
+		int count = buffer.getInt();
+		HistoryColumns history = columns.get().ensure(count);
+		buffer.asDoubleBuffer().get(history.latitudes, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+		buffer.asDoubleBuffer().get(history.longitudes, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+		buffer.asLongBuffer().get(history.times, 0, count);
+		buffer.position(buffer.position() + count * Long.BYTES);
+		user.getLocationHistory().restore(appendedCount, history.latitudes, history.longitudes, history.times, count);
+
+		int rewardCount = buffer.getInt();
+		for (int i = 0; i < rewardCount; i++) {
+			user.addUserReward(decodeReward(buffer, userId));
+		}
+		return user;
+	}
+
+	public void writeLocation(ByteBuffer buffer, UUID userId, long sequence, VisitedLocation visitedLocation) {
+		putUuid(buffer, userId);
+		buffer.putLong(sequence);
+		buffer.putDouble(visitedLocation.location.latitude);
+		buffer.putDouble(visitedLocation.location.longitude);
+		buffer.putLong(visitedLocation.timeVisited.getTime());
+	}
+
+	public void writeReward(ByteBuffer buffer, UUID userId, UserReward userReward) {
+		putUuid(buffer, userId);
+		putReward(buffer, userReward);
+	}
+
+	public UserReward decodeReward(ByteBuffer buffer, UUID userId) {
+		VisitedLocation visitedLocation = new VisitedLocation(userId,
+				new Location(buffer.getDouble(), buffer.getDouble()), new Date(buffer.getLong()));
+		String attractionName = getString(buffer);
+		Attraction attraction = attractions.get(attractionName);
+		if (attraction == null) {
+			String city = getString(buffer);
+			String state = getString(buffer);
+			double latitude = buffer.getDouble();
+			double longitude = buffer.getDouble();
+			attraction = attractions.computeIfAbsent(attractionName,
+					name -> new Attraction(name, city, state, latitude, longitude));
+		} else {
+			// Known attraction, its city, state and location are not decoded
+			skipString(buffer);
+			skipString(buffer);
+			buffer.position(buffer.position() + 2 * Double.BYTES);
+		}
+		return new UserReward(visitedLocation, attraction, buffer.getInt());
+	}
+
+	private void writeUser(ByteBuffer buffer, User user) {
+		putUuid(buffer, user.getUserId());
+		putString(buffer, user.getUserName());
+		putString(buffer, user.getPhoneNumber());
+		putString(buffer, user.getEmailAddress());
+		Date latestLocationTimestamp = user.getLatestLocationTimestamp();
+		buffer.putLong(latestLocationTimestamp != null ? latestLocationTimestamp.getTime() : NO_TIMESTAMP);
+		buffer.putLong(user.getLastAccessTime());
+		UserPreferences preferences = user.getUserPreferences();
+		buffer.putInt(preferences.getAttractionProximity());
+		buffer.putInt(preferences.getTripDuration());
+		buffer.putInt(preferences.getTicketQuantity());
+		buffer.putInt(preferences.getNumberOfAdults());
+		buffer.putInt(preferences.getNumberOfChildren());
+
+		LocationHistory locationHistory = user.getLocationHistory();
+		buffer.putInt(locationHistory.getRetention());
+		HistoryColumns history = columns.get();
+		int count;
+		long appendedCount;
+		synchronized (locationHistory) {
+			history.ensure(locationHistory.size());
+			count = locationHistory.copyTo(history.latitudes, history.longitudes, history.times);
+			appendedCount = locationHistory.getAppendedCount();
+		}
+		buffer.putLong(appendedCount);
+		buffer.putInt(count);
+		buffer.asDoubleBuffer().put(history.latitudes, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+		buffer.asDoubleBuffer().put(history.longitudes, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+		buffer.asLongBuffer().put(history.times, 0, count);
+		buffer.position(buffer.position() + count * Long.BYTES);
+
+		List<UserReward> userRewards = user.getUserRewards();
+		buffer.putInt(userRewards.size());
+		for (UserReward userReward : userRewards) {
+			putReward(buffer, userReward);
+		}
+	}
+
+	private static void putReward(ByteBuffer buffer, UserReward userReward) {
+		buffer.putDouble(userReward.visitedLocation.location.latitude);
+		buffer.putDouble(userReward.visitedLocation.location.longitude);
+		buffer.putLong(userReward.visitedLocation.timeVisited.getTime());
+		putString(buffer, userReward.attraction.attractionName);
+		putString(buffer, userReward.attraction.city);
+		putString(buffer, userReward.attraction.state);
+		buffer.putDouble(userReward.attraction.latitude);
+		buffer.putDouble(userReward.attraction.longitude);
+		buffer.putInt(userReward.getRewardPoints());
+	}
+
+	private static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	static void putUuid(ByteBuffer buffer, UUID uuid) {
+		buffer.putLong(uuid.getMostSignificantBits());
+		buffer.putLong(uuid.getLeastSignificantBits());
+	}
+
+	static UUID getUuid(ByteBuffer buffer) {
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void skipString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		buffer.position(buffer.position() + Math.max(0, length));
+	}
+
+	private static class HistoryColumns {
+		private double[] latitudes = new double[0];
+		private double[] longitudes = new double[0];
+		private long[] times = new long[0];
+
+		HistoryColumns ensure(int count) {
+			if (latitudes.length < count) {
+				latitudes = new double[count];
+				longitudes = new double[count];
+				times = new long[count];
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package com.openclassrooms.tourguide.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.LocationHistory;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserJournal;
+import com.openclassrooms.tourguide.user.UserReward;
+import com.openclassrooms.tourguide.user.UserStore;
+
+/**
+ * Keeps the users across restarts: a {@link UserSnapshot} taken periodically, and a
+ * {@link WriteAheadLog} of the users, locations and rewards added between snapshots.
+ * <p>
+ * {@link #open(UserStore)} restores the last snapshot, replays the log on top of it, then starts
+ * journaling. Replaying is idempotent: locations carry their sequence number in the history and
+ * are skipped when already restored, rewards are only added once per attraction, so changes made
+ * while a snapshot is written may be both in the snapshot and in the log. A location whose sequence
+ * number is past the end of the restored history means records are missing: it is dropped rather
+ * than appended out of place.
+ * <p>
+ * When disabled, nothing is read or written.
+ */
+public class UserPersistence implements UserJournal {
+	private final Logger logger = LoggerFactory.getLogger(UserPersistence.class);
+	private static final String SNAPSHOT_FILE = "users.snapshot";
+	// Largest encoded location and reward records, attraction names included
+	private static final int LOCATION_RECORD_SIZE = 16 + 8 + 8 + 8 + 8;
+	private static final int MAX_REWARD_RECORD_SIZE = 16 + 24 + 3 * 4 + 3 * 4096 + 16 + 4;
+
+	private final PersistenceProperties properties;
+	private final Path directory;
+	private final UserCodec codec;
+	private final UserSnapshot snapshot;
+	private final AtomicLong replayedRecords = new AtomicLong();
+	private final AtomicLong droppedRecords = new AtomicLong();
+	private volatile WriteAheadLog log;
+	private ScheduledExecutorService scheduler;
+	private UserStore userStore;
+
+	/**
+	 * @param attractions known attractions, restored rewards refer to them
+	 */
+	public UserPersistence(PersistenceProperties properties, Collection<Attraction> attractions) {
+		this.properties = properties;
+		this.directory = Paths.get(properties.getDirectory());
+		this.codec = new UserCodec(attractions);
+		this.snapshot = new UserSnapshot(codec);
+	}
+
+	/**
+	 * Restores the users in the store, then journals their changes and snapshots the store periodically
+	 *
+	 * @return the number of users restored
+	 */
+	public synchronized int open(UserStore userStore) {
+		if (!properties.isEnabled()) {
+			return 0;
+		}
+		this.userStore = userStore;
+		try {
+			Files.createDirectories(directory);
+			restore(userStore);
+			log = new WriteAheadLog(directory);
+		} catch (IOException e) {
+			throw new SnapshotException("Cannot restore the users from " + directory, e);
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "user-persistence");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long flushInterval = properties.getFlushInterval().toMillis();
+		long snapshotInterval = properties.getSnapshotInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+		return userStore.size();
+	}
+
+	/**
+	 * Writes a snapshot of the store and drops the log it covers
+	 */
+	public synchronized void snapshot() {
+		if (log == null) {
+			return;
+		}
+		StopWatch stopWatch = StopWatch.createStarted();
+		try {
+			long generation = log.rotate();
+			int users = snapshot.write(directory.resolve(SNAPSHOT_FILE), userStore, generation);
+			log.deleteBefore(generation);
+			logger.debug("Snapshot of {} users written in {} ms", users, stopWatch.getTime());
+		} catch (IOException | SnapshotException e) {
+			logger.error("Cannot write the user snapshot: {}", e.getMessage());
+		}
+	}
+
+	public void flush() {
+		WriteAheadLog currentLog = log;
+		if (currentLog != null) {
+			try {
+				currentLog.flush();
+			} catch (SnapshotException e) {
+				logger.error(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Takes a last snapshot and stops
+	 */
+	public synchronized void shutdown() {
+		if (log == null) {
+			return;
+		}
+		scheduler.shutdownNow();
+		snapshot();
+		try {
+			log.close();
+		} catch (IOException e) {
+			logger.error("Cannot close the write-ahead log: {}", e.getMessage());
+		}
+		log = null;
+		userStore = null;
+	}
+
+	public long getReplayedRecords() {
+		return replayedRecords.get();
+	}
+
+	/**
+	 * Location records dropped by the replay because earlier locations of their user are missing
+	 */
+	public long getDroppedRecords() {
+		return droppedRecords.get();
+	}
+
+	@Override
+	public void userAdded(User user) {
+		WriteAheadLog currentLog = log;
+		if (currentLog != null) {
+			ByteBuffer record = codec.encodeUser(user);
+			currentLog.append(WriteAheadLog.USER, record.remaining(), buffer -> buffer.put(record));
+		}
+	}
+
+	@Override
+	public void locationAdded(User user, long sequence, VisitedLocation visitedLocation) {
+		WriteAheadLog currentLog = log;
+		if (currentLog != null) {
+			currentLog.append(WriteAheadLog.LOCATION, LOCATION_RECORD_SIZE,
+					buffer -> codec.writeLocation(buffer, user.getUserId(), sequence, visitedLocation));
+		}
+	}
+
+	@Override
+	public void rewardAdded(User user, UserReward userReward) {
+		WriteAheadLog currentLog = log;
+		if (currentLog != null) {
+			currentLog.append(WriteAheadLog.REWARD, MAX_REWARD_RECORD_SIZE,
+					buffer -> codec.writeReward(buffer, user.getUserId(), userReward));
+		}
+	}
+
+	private int restore(UserStore userStore) throws IOException {
+		StopWatch stopWatch = StopWatch.createStarted();
+		Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+		long fromGeneration = 0;
+		if (Files.exists(snapshotFile)) {
+			fromGeneration = snapshot.read(snapshotFile, userStore::add);
+		}
+		int snapshotUsers = userStore.size();
+		long records = WriteAheadLog.replay(directory, fromGeneration, (type, payload) -> apply(userStore, type, payload));
+		replayedRecords.addAndGet(records);
+		if (droppedRecords.get() > 0) {
+			logger.error("{} location records of the write-ahead log were dropped: earlier locations of their users are missing",
+					droppedRecords.get());
+		}
+		logger.info("Restored {} users from the snapshot and {} changes from the write-ahead log in {} ms",
+				snapshotUsers, records, stopWatch.getTime());
+		return userStore.size();
+	}
+
+	private void apply(UserStore userStore, byte type, ByteBuffer payload) {
+		switch (type) {
+			case WriteAheadLog.USER:
+				userStore.add(codec.decodeUser(payload));
+				break;
+			case WriteAheadLog.LOCATION: {
+				UUID userId = UserCodec.getUuid(payload);
+				long sequence = payload.getLong();
+				User user = userStore.getById(userId);
+				if (user == null) {
+					break;
+				}
+				LocationHistory history = user.getLocationHistory();
+				long appendedCount = history.getAppendedCount();
+				if (sequence == appendedCount) {
+					double latitude = payload.getDouble();
+					double longitude = payload.getDouble();
+					long timeVisited = payload.getLong();
+					history.append(latitude, longitude, timeVisited);
+					// Not journaled on its own: the tracker sets it to the time of the location it just appended
+					user.setLatestLocationTimestamp(new Date(timeVisited));
+				} else if (sequence > appendedCount) {
+					// A gap: appending would shift the history
+					logger.debug("Location {} of user {} dropped, the history ends at {}", sequence, userId, appendedCount);
+					droppedRecords.incrementAndGet();
+				}
+				// Below the appended count: already restored from the snapshot, or from an earlier record
+				break;
+			}
+			case WriteAheadLog.REWARD: {
+				UUID userId = UserCodec.getUuid(payload);
+				User user = userStore.getById(userId);
+				if (user != null) {
+					user.addUserReward(codec.decodeReward(payload, userId));
+				}
+				break;
+			}
+			default:
+				logger.warn("Unknown write-ahead log record type {}", type);
+		}
+	}
+}
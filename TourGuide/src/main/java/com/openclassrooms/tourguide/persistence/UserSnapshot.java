@@ -0,0 +1,183 @@
+package com.openclassrooms.tourguide.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Snapshot file of every user, written and read through memory-mapped regions.
+ * <p>
+ * Layout: a header, the user records in blocks of {@value #BLOCK_USERS} users, each record
+ * prefixed with its length, then an index giving the offset, length and user count of each block.
+ * Blocks are mapped and decoded in parallel on reading.
+ * <p>
+ * A snapshot is written to a temporary file moved over the previous snapshot once complete, so a
+ * crash while writing leaves the previous snapshot in place.
+ */
+public class UserSnapshot {
+	private static final int MAGIC = 0x54475331;
+	private static final int VERSION = 1;
+	// magic, version, WAL generation, user count, block count, index offset
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+	private static final int INDEX_ENTRY_SIZE = 8 + 8 + 4;
+	static final int BLOCK_USERS = 1024;
+	private static final long REGION_SIZE = 32L * 1024 * 1024;
+
+	private final UserCodec codec;
+
+	public UserSnapshot(UserCodec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Writes every user to the snapshot file
+	 *
+	 * @param walGeneration first write-ahead log generation to replay after this snapshot
+	 * @return the number of users written
+	 */
+	public int write(Path file, Iterable<User> users, long walGeneration) throws IOException {
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		int userCount = 0;
+		List<long[]> blocks = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedWriter writer = new MappedWriter(channel, HEADER_SIZE);
+			long blockStart = writer.position();
+			int blockUsers = 0;
+			for (User user : users) {
+				ByteBuffer record = codec.encodeUser(user);
+				writer.ensure(4 + record.remaining());
+				writer.buffer.putInt(record.remaining());
+				writer.buffer.put(record);
+				userCount++;
+				if (++blockUsers == BLOCK_USERS) {
+					blocks.add(new long[] {blockStart, writer.position() - blockStart, blockUsers});
+					blockStart = writer.position();
+					blockUsers = 0;
+				}
+			}
+			if (blockUsers > 0) {
+				blocks.add(new long[] {blockStart, writer.position() - blockStart, blockUsers});
+			}
+
+			long indexOffset = writer.position();
+			writer.ensure(blocks.size() * INDEX_ENTRY_SIZE);
+			for (long[] block : blocks) {
+				writer.buffer.putLong(block[0]);
+				writer.buffer.putLong(block[1]);
+				writer.buffer.putInt((int) block[2]);
+			}
+			long fileSize = writer.position();
+			writer.force();
+
+			ByteBuffer header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putLong(walGeneration);
+			header.putInt(userCount);
+			header.putInt(blocks.size());
+			header.putLong(indexOffset);
+			((MappedByteBuffer) header).force();
+			// Regions are mapped ahead of the data, drop the unused tail
+			channel.truncate(fileSize);
+			channel.force(true);
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return userCount;
+	}
+
+	/**
+	 * Decodes every user of the snapshot file, blocks in parallel: the consumer must be thread safe
+	 *
+	 * @return the first write-ahead log generation to replay after this snapshot
+	 */
+	public long read(Path file, Consumer<User> consumer) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a user snapshot: " + file);
+			}
+			long walGeneration = header.getLong();
+			header.getInt();
+			int blockCount = header.getInt();
+			long indexOffset = header.getLong();
+
+			ByteBuffer index = channel.map(MapMode.READ_ONLY, indexOffset, (long) blockCount * INDEX_ENTRY_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			long[] offsets = new long[blockCount];
+			long[] lengths = new long[blockCount];
+			int[] userCounts = new int[blockCount];
+			for (int b = 0; b < blockCount; b++) {
+				offsets[b] = index.getLong();
+				lengths[b] = index.getLong();
+				userCounts[b] = index.getInt();
+			}
+
+			IntStream.range(0, blockCount).parallel().forEach(b -> {
+				ByteBuffer block = map(channel, offsets[b], lengths[b]);
+				for (int u = 0; u < userCounts[b]; u++) {
+					int length = block.getInt();
+					ByteBuffer record = block.slice(block.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+					block.position(block.position() + length);
+					consumer.accept(codec.decodeUser(record));
+				}
+			});
+			return walGeneration;
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long offset, long length) {
+		try {
+			return channel.map(MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			throw new SnapshotException("Cannot map snapshot block at " + offset, e);
+		}
+	}
+
+	/* Sequential writer over consecutive mapped regions of the file */
+	private static class MappedWriter {
+		private final FileChannel channel;
+		private long regionStart;
+		private MappedByteBuffer buffer;
+
+		MappedWriter(FileChannel channel, long position) throws IOException {
+			this.channel = channel;
+			map(position, REGION_SIZE);
+		}
+
+		long position() {
+			return regionStart + buffer.position();
+		}
+
+		/* Maps a new region at the current position if the current one has less than the given room */
+		void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				buffer.force();
+				map(position(), Math.max(REGION_SIZE, bytes));
+			}
+		}
+
+		void force() {
+			buffer.force();
+		}
+
+		private void map(long position, long size) throws IOException {
+			regionStart = position;
+			buffer = channel.map(MapMode.READ_WRITE, position, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+}
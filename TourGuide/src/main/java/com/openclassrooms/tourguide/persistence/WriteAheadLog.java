@@ -0,0 +1,216 @@
+package com.openclassrooms.tourguide.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of the user changes made since the last snapshot, one file per generation.
+ * <p>
+ * Records are framed as {@code [length][CRC32C][type][payload]} and buffered in memory: they reach
+ * the file when the buffer is full or on {@link #flush()}, called periodically, so a crash loses at
+ * most one flush interval of changes. On replay, a record cut short or failing its checksum ends the
+ * generation, it was being written when the process stopped.
+ * <p>
+ * Taking a snapshot starts a new generation: once the snapshot is written, older generations are
+ * covered by it and deleted.
+ */
+public class WriteAheadLog {
+	private final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+	private static final Pattern FILE_NAME = Pattern.compile("wal-(\\d+)\\.log");
+	private static final int BUFFER_SIZE = 256 * 1024;
+	// length and checksum
+	private static final int FRAME_HEADER_SIZE = 8;
+
+	public static final byte USER = 1;
+	public static final byte LOCATION = 2;
+	public static final byte REWARD = 3;
+
+	private final Path directory;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final CRC32C checksum = new CRC32C();
+	private FileChannel channel;
+	private long generation;
+
+	/**
+	 * Opens a new generation after the existing ones
+	 */
+	public WriteAheadLog(Path directory) throws IOException {
+		this.directory = directory;
+		List<Long> generations = generations(directory);
+		open(generations.isEmpty() ? 1 : generations.get(generations.size() - 1) + 1);
+	}
+
+	/**
+	 * Writes one record, the payload writer receives a buffer with room for {@code maxPayloadSize} bytes
+	 */
+	public synchronized void append(byte type, int maxPayloadSize, Consumer<ByteBuffer> payloadWriter) {
+		int frameSize = FRAME_HEADER_SIZE + 1 + maxPayloadSize;
+		if (frameSize > buffer.capacity()) {
+			throw new IllegalArgumentException("Write-ahead log record too large: " + frameSize);
+		}
+		if (buffer.remaining() < frameSize) {
+			flush();
+		}
+		int start = buffer.position();
+		buffer.position(start + FRAME_HEADER_SIZE);
+		buffer.put(type);
+		payloadWriter.accept(buffer);
+		int end = buffer.position();
+
+		ByteBuffer record = buffer.duplicate().position(start + FRAME_HEADER_SIZE).limit(end);
+		checksum.reset();
+		checksum.update(record);
+		buffer.putInt(start, end - start - FRAME_HEADER_SIZE);
+		buffer.putInt(start + 4, (int) checksum.getValue());
+	}
+
+	/**
+	 * Writes the buffered records to the file
+	 */
+	public synchronized void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new SnapshotException("Cannot write the write-ahead log " + generation, e);
+		} finally {
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Flushes the current generation and starts the next one
+	 *
+	 * @return the new generation
+	 */
+	public synchronized long rotate() throws IOException {
+		flush();
+		channel.close();
+		open(generation + 1);
+		return generation;
+	}
+
+	/**
+	 * Deletes the generations before the given one
+	 */
+	public void deleteBefore(long generation) throws IOException {
+		for (long previous : generations(directory)) {
+			if (previous < generation) {
+				Files.deleteIfExists(file(directory, previous));
+			}
+		}
+	}
+
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public synchronized void close() throws IOException {
+		flush();
+		channel.force(false);
+		channel.close();
+	}
+
+	/**
+	 * Replays the records of the generations from {@code fromGeneration} on, in order
+	 *
+	 * @param consumer receives the type of each record, and its payload
+	 * @return the number of records replayed
+	 */
+	public static long replay(Path directory, long fromGeneration, RecordConsumer consumer) throws IOException {
+		long records = 0;
+		for (long generation : generations(directory)) {
+			if (generation >= fromGeneration) {
+				records += replay(file(directory, generation), consumer);
+			}
+		}
+		return records;
+	}
+
+	private static long replay(Path file, RecordConsumer consumer) throws IOException {
+		Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+		CRC32C checksum = new CRC32C();
+		long records = 0;
+		try (InputStream fileStream = Files.newInputStream(file);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(fileStream, BUFFER_SIZE))) {
+			byte[] record = new byte[BUFFER_SIZE];
+			while (true) {
+				int length;
+				int expectedChecksum;
+				try {
+					// Frames are little-endian, DataInputStream reads big-endian
+					length = Integer.reverseBytes(in.readInt());
+					expectedChecksum = Integer.reverseBytes(in.readInt());
+					if (length < 1 || length > record.length) {
+						logger.warn("Write-ahead log {} ends with a corrupted record", file.getFileName());
+						break;
+					}
+					in.readFully(record, 0, length);
+				} catch (EOFException e) {
+					// End of the file, possibly in the middle of the last record
+					break;
+				}
+				checksum.reset();
+				checksum.update(record, 0, length);
+				if ((int) checksum.getValue() != expectedChecksum) {
+					logger.warn("Write-ahead log {} ends with a corrupted record", file.getFileName());
+					break;
+				}
+				consumer.accept(record[0], ByteBuffer.wrap(record, 1, length - 1).order(ByteOrder.LITTLE_ENDIAN));
+				records++;
+			}
+		}
+		return records;
+	}
+
+	private void open(long generation) throws IOException {
+		this.generation = generation;
+		this.channel = FileChannel.open(file(directory, generation),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		logger.debug("Write-ahead log generation {}", generation);
+	}
+
+	private static Path file(Path directory, long generation) {
+		return directory.resolve("wal-" + generation + ".log");
+	}
+
+	private static List<Long> generations(Path directory) throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> {
+				Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					generations.add(Long.parseLong(matcher.group(1)));
+				}
+			});
+		}
+		generations.sort(null);
+		return generations;
+	}
+
+	@FunctionalInterface
+	public interface RecordConsumer {
+		void accept(byte type, ByteBuffer payload);
+	}
+}
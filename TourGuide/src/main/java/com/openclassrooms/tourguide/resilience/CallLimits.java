@@ -0,0 +1,105 @@
+package com.openclassrooms.tourguide.resilience;
+
+import java.time.Duration;
+
+/**
+ * Limits of the calls to one external dependency, see {@link ResiliencePolicy}.
+ */
+public class CallLimits {
+
+	// Token bucket, no rate limit when permitsPerSecond is 0
+	private double permitsPerSecond = 0;
+	private int burst = 100;
+	// Bulkhead: calls running at the same time
+	private int maxConcurrentCalls = 64;
+	// Longest wait for a rate limit token and a bulkhead slot before the call is refused
+	private Duration maxWait = Duration.ofSeconds(1);
+	// Calls running longer are abandoned and count as failures
+	private Duration timeout = Duration.ofSeconds(5);
+	// Circuit breaker, see CircuitBreaker
+	private double failureRateThreshold = 50;
+	private int slidingWindowSize = 100;
+	private int minimumCalls = 20;
+	private Duration openDuration = Duration.ofSeconds(30);
+	private int halfOpenCalls = 5;
+
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	public void setPermitsPerSecond(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+	}
+
+	public Duration getMaxWait() {
+		return maxWait;
+	}
+
+	public void setMaxWait(Duration maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(double failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public int getSlidingWindowSize() {
+		return slidingWindowSize;
+	}
+
+	public void setSlidingWindowSize(int slidingWindowSize) {
+		this.slidingWindowSize = slidingWindowSize;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public Duration getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(Duration openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+}
@@ -0,0 +1,146 @@
+package com.openclassrooms.tourguide.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a failing dependency for a while.
+ * <ul>
+ *     <li>closed: calls go through, their outcomes are recorded in a window of the last calls.
+ *     Opens when the failure rate of the window reaches the threshold.</li>
+ *     <li>open: calls are refused for the open duration, then the breaker is half open.</li>
+ *     <li>half open: a few trial calls go through, closes when they all succeed and opens
+ *     again at the first failure.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private final double failureRateThreshold;
+	private final int minimumCalls;
+	private final long openDurationNanos;
+	private final int halfOpenCalls;
+	// Outcomes of the last calls, true for failures
+	private final boolean[] window;
+	private int windowIndex;
+	private int windowCalls;
+	private int windowFailures;
+
+	private State state = State.CLOSED;
+	private long openedTime;
+	private int halfOpenPermits;
+	private int halfOpenSuccesses;
+
+	/**
+	 * @param failureRateThreshold percentage of failed calls in the window opening the breaker
+	 * @param windowSize number of last calls the failure rate is computed on
+	 * @param minimumCalls calls needed in the window before the failure rate is checked
+	 * @param halfOpenCalls trial calls let through when half open
+	 */
+	public CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+			long openDuration, TimeUnit unit, int halfOpenCalls) {
+		if (windowSize < 1 || halfOpenCalls < 1) {
+			throw new IllegalArgumentException("windowSize and halfOpenCalls must be positive: " + windowSize + ", " + halfOpenCalls);
+		}
+		this.failureRateThreshold = failureRateThreshold;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.openDurationNanos = unit.toNanos(openDuration);
+		this.halfOpenCalls = halfOpenCalls;
+		this.window = new boolean[windowSize];
+	}
+
+	/**
+	 * @return true if the call may go through, its outcome must then be recorded
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN && System.nanoTime() - openedTime >= openDurationNanos) {
+			state = State.HALF_OPEN;
+			halfOpenPermits = halfOpenCalls;
+			halfOpenSuccesses = 0;
+		}
+		switch (state) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if (halfOpenPermits > 0) {
+					halfOpenPermits--;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Gives back a permit for a call that was finally not made
+	 */
+	public synchronized void release() {
+		if (state == State.HALF_OPEN) {
+			halfOpenPermits++;
+		}
+	}
+
+	public synchronized void recordSuccess() {
+		if (state == State.HALF_OPEN) {
+			if (++halfOpenSuccesses == halfOpenCalls) {
+				close();
+			}
+		} else if (state == State.CLOSED) {
+			record(false);
+		}
+	}
+
+	public synchronized void recordFailure() {
+		if (state == State.HALF_OPEN) {
+			open();
+		} else if (state == State.CLOSED) {
+			record(true);
+			if (windowCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+				open();
+			}
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Percentage of failed calls in the window
+	 */
+	public synchronized double getFailureRate() {
+		return windowCalls == 0 ? 0 : 100.0 * windowFailures / windowCalls;
+	}
+
+	private void record(boolean failure) {
+		if (windowCalls == window.length) {
+			if (window[windowIndex]) {
+				windowFailures--;
+			}
+		} else {
+			windowCalls++;
+		}
+		window[windowIndex] = failure;
+		if (failure) {
+			windowFailures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedTime = System.nanoTime();
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		windowIndex = 0;
+		windowCalls = 0;
+		windowFailures = 0;
+	}
+}
@@ -0,0 +1,36 @@
+package com.openclassrooms.tourguide.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A call to an external dependency was refused or abandoned by its {@link ResiliencePolicy}.
+ * Web requests failing with it are answered with 503 Service Unavailable.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DependencyUnavailableException extends RuntimeException {
+
+	public enum Reason {
+		RATE_LIMITED,
+		BULKHEAD_FULL,
+		CIRCUIT_OPEN,
+		TIMEOUT
+	}
+
+	private final String dependency;
+	private final Reason reason;
+
+	public DependencyUnavailableException(String dependency, Reason reason) {
+		super(dependency + " unavailable: " + reason);
+		this.dependency = dependency;
+		this.reason = reason;
+	}
+
+	public String getDependency() {
+		return dependency;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.tourguide.resilience;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Shows the state of each {@link ResiliencePolicy} on the actuator health endpoint.
+ * <p>
+ * The application stays up while circuits are open: tracking and web requests for the
+ * dependency are refused, everything else keeps working. {@code timedOutCalls} among the
+ * {@code activeCalls} are calls stuck in a hung dependency rather than load.
+ */
+public class ResilienceHealthIndicator implements HealthIndicator {
+
+	private final List<ResiliencePolicy> policies;
+
+	public ResilienceHealthIndicator(List<ResiliencePolicy> policies) {
+		this.policies = policies;
+	}
+
+	@Override
+	public Health health() {
+		Health.Builder health = Health.up();
+		for (ResiliencePolicy policy : policies) {
+			health.withDetail(policy.getName(), Map.of(
+					"circuit", policy.getCircuitState(),
+					"failureRate", policy.getFailureRate(),
+					"activeCalls", policy.getActiveCalls(),
+					"timedOutCalls", policy.getTimedOutCalls(),
+					"maxConcurrentCalls", policy.getMaxConcurrentCalls()));
+		}
+		return health.build();
+	}
+}
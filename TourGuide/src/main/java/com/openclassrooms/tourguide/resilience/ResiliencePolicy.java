@@ -0,0 +1,303 @@
+package com.openclassrooms.tourguide.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.resilience.DependencyUnavailableException.Reason;
+
+/**
+ * Guards the calls to one external dependency, in this order:
+ * <ol>
+ *     <li>circuit breaker: refuses calls while the dependency keeps failing</li>
+ *     <li>rate limiter: a token bucket caps the calls per second</li>
+ *     <li>bulkhead: caps the calls running at the same time</li>
+ *     <li>timeout: the call runs on a worker of the policy and the caller stops waiting after the timeout</li>
+ * </ol>
+ * Callers wait at most {@code maxWait} for the rate limiter and the bulkhead, refused and abandoned
+ * calls fail with a {@link DependencyUnavailableException} instead of holding the caller's thread.
+ * <p>
+ * The bulkhead bounds the threads running in the dependency, not the callers waiting for it. An
+ * abandoned call is interrupted but keeps its bulkhead slot until it actually returns, and GpsUtil
+ * and TripPricer ignore interrupts: a hung dependency never has more than {@code maxConcurrentCalls}
+ * threads stuck in it, but once they are all stuck every call is refused with
+ * {@link Reason#BULKHEAD_FULL}. {@link #getTimedOutCalls()} tells these stuck calls apart from
+ * the calls still within their timeout.
+ * <p>
+ * Once bound to a registry, the {@code dependency.latency} timer records how long the dependency
+ * itself took, abandoned calls included, without the time spent waiting for the policy.
+ */
+public class ResiliencePolicy implements MeterBinder {
+
+	public enum Outcome {
+		SUCCESS,
+		FAILURE,
+		TIMEOUT,
+		RATE_LIMITED,
+		BULKHEAD_FULL,
+		CIRCUIT_OPEN
+	}
+
+	private final String name;
+	private final TokenBucketRateLimiter rateLimiter;
+	private final Semaphore bulkhead;
+	private final int maxConcurrentCalls;
+	private final CircuitBreaker circuitBreaker;
+	private final long maxWaitNanos;
+	private final long timeoutNanos;
+	private final ThreadPoolExecutor executor;
+	private final AtomicInteger timedOutCalls = new AtomicInteger();
+	private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+	// Null until bound to a registry
+	private volatile Timer latency;
+
+	public ResiliencePolicy(String name, CallLimits limits) {
+		this.name = name;
+		this.rateLimiter = limits.getPermitsPerSecond() > 0
+				? new TokenBucketRateLimiter(limits.getPermitsPerSecond(), limits.getBurst())
+				: null;
+		this.maxConcurrentCalls = limits.getMaxConcurrentCalls();
+		this.bulkhead = new Semaphore(maxConcurrentCalls);
+		this.circuitBreaker = new CircuitBreaker(limits.getFailureRateThreshold(), limits.getSlidingWindowSize(),
+				limits.getMinimumCalls(), limits.getOpenDuration().toNanos(), TimeUnit.NANOSECONDS,
+				limits.getHalfOpenCalls());
+		this.maxWaitNanos = limits.getMaxWait().toNanos();
+		this.timeoutNanos = limits.getTimeout().toNanos();
+		// The bulkhead admits at most maxConcurrentCalls tasks, the pool never needs to queue
+		this.executor = new ThreadPoolExecutor(0, maxConcurrentCalls, 30, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), new DaemonThreadFactory(name));
+		for (Outcome outcome : Outcome.values()) {
+			outcomes.put(outcome, new LongAdder());
+		}
+	}
+
+	/**
+	 * Runs the call under the policy
+	 *
+	 * @throws DependencyUnavailableException when the call is refused or times out
+	 */
+	public <T> T call(Callable<T> call) {
+		if (!circuitBreaker.tryAcquire()) {
+			throw refused(Outcome.CIRCUIT_OPEN, Reason.CIRCUIT_OPEN);
+		}
+		try {
+			if (rateLimiter != null && !rateLimiter.tryAcquire(maxWaitNanos)) {
+				circuitBreaker.release();
+				throw refused(Outcome.RATE_LIMITED, Reason.RATE_LIMITED);
+			}
+			if (!bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+				circuitBreaker.release();
+				throw refused(Outcome.BULKHEAD_FULL, Reason.BULKHEAD_FULL);
+			}
+		} catch (InterruptedException e) {
+			circuitBreaker.release();
+			Thread.currentThread().interrupt();
+			throw refused(Outcome.BULKHEAD_FULL, Reason.BULKHEAD_FULL);
+		}
+
+		Attempt<T> attempt = new Attempt<>(call);
+		try {
+			executor.execute(attempt);
+		} catch (RejectedExecutionException e) {
+			bulkhead.release();
+			circuitBreaker.release();
+			throw refused(Outcome.BULKHEAD_FULL, Reason.BULKHEAD_FULL);
+		}
+
+		try {
+			T result = attempt.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			circuitBreaker.recordSuccess();
+			outcomes.get(Outcome.SUCCESS).increment();
+			return result;
+		} catch (TimeoutException e) {
+			attempt.abandon();
+			circuitBreaker.recordFailure();
+			throw refused(Outcome.TIMEOUT, Reason.TIMEOUT);
+		} catch (ExecutionException e) {
+			circuitBreaker.recordFailure();
+			outcomes.get(Outcome.FAILURE).increment();
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(name + " call failed", e.getCause());
+		} catch (InterruptedException e) {
+			attempt.abandon();
+			Thread.currentThread().interrupt();
+			throw refused(Outcome.TIMEOUT, Reason.TIMEOUT);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public CircuitBreaker.State getCircuitState() {
+		return circuitBreaker.getState();
+	}
+
+	public double getFailureRate() {
+		return circuitBreaker.getFailureRate();
+	}
+
+	public int getActiveCalls() {
+		return maxConcurrentCalls - bulkhead.availablePermits();
+	}
+
+	/**
+	 * Calls abandoned after their timeout that still hold a bulkhead slot, included in {@link #getActiveCalls()}
+	 */
+	public int getTimedOutCalls() {
+		return timedOutCalls.get();
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public long getCount(Outcome outcome) {
+		return outcomes.get(outcome).sum();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("resilience.circuit.state", this, policy -> policy.getCircuitState().ordinal())
+				.tag("dependency", name)
+				.description("State of the circuit breaker: 0 closed, 1 open, 2 half open")
+				.register(registry);
+		Gauge.builder("resilience.circuit.failure.rate", this, ResiliencePolicy::getFailureRate)
+				.tag("dependency", name)
+				.baseUnit("percent")
+				.description("Failure rate of the last calls seen by the circuit breaker")
+				.register(registry);
+		Gauge.builder("resilience.bulkhead.active", this, ResiliencePolicy::getActiveCalls)
+				.tag("dependency", name)
+				.description("The number of calls running at the same time")
+				.register(registry);
+		Gauge.builder("resilience.bulkhead.timed.out", this, ResiliencePolicy::getTimedOutCalls)
+				.tag("dependency", name)
+				.description("The number of calls still running after their timeout, holding a bulkhead slot")
+				.register(registry);
+		for (Outcome outcome : Outcome.values()) {
+			FunctionCounter.builder("resilience.calls", this, policy -> policy.getCount(outcome))
+					.tag("dependency", name)
+					.tag("outcome", outcome.name().toLowerCase())
+					.description("The number of calls to the dependency by outcome")
+					.register(registry);
+		}
+		latency = Timer.builder("dependency.latency")
+				.tag("dependency", name)
+				.description("Duration of the calls to the dependency, refused calls excluded")
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private void recordLatency(long nanos) {
+		Timer timer = latency;
+		if (timer != null) {
+			timer.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private DependencyUnavailableException refused(Outcome outcome, Reason reason) {
+		outcomes.get(outcome).increment();
+		return new DependencyUnavailableException(name, reason);
+	}
+
+	/**
+	 * One call run on a worker. Unlike a cancelled {@link java.util.concurrent.FutureTask}, an attempt
+	 * always runs, so its bulkhead slot is always released.
+	 */
+	private class Attempt<T> implements Runnable {
+		private final Callable<T> call;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		// Guarded by this
+		private Thread worker;
+		private boolean finished;
+		private boolean abandoned;
+
+		Attempt(Callable<T> call) {
+			this.call = call;
+		}
+
+		@Override
+		public void run() {
+			boolean abandonedBeforeStart;
+			synchronized (this) {
+				worker = Thread.currentThread();
+				abandonedBeforeStart = abandoned;
+			}
+			long start = System.nanoTime();
+			try {
+				// Nobody waits for the result of an attempt abandoned before it started
+				if (!abandonedBeforeStart) {
+					result.complete(call.call());
+				}
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			} finally {
+				synchronized (this) {
+					finished = true;
+					worker = null;
+					if (abandoned) {
+						timedOutCalls.decrementAndGet();
+					}
+				}
+				// An interrupt of this attempt must not leak to the next task of the worker
+				Thread.interrupted();
+				bulkhead.release();
+				recordLatency(System.nanoTime() - start);
+			}
+		}
+
+		/**
+		 * Interrupts the call, counted in {@link #getTimedOutCalls()} until it returns
+		 */
+		synchronized void abandon() {
+			if (finished || abandoned) {
+				return;
+			}
+			abandoned = true;
+			timedOutCalls.incrementAndGet();
+			if (worker != null) {
+				worker.interrupt();
+			}
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.tourguide.resilience;
+
+/**
+ * Call limits of each external dependency, bound to the {@code tourguide.resilience} properties.
+ */
+public class ResilienceProperties {
+
+	private CallLimits gpsUtil = new CallLimits();
+	private CallLimits tripPricer = new CallLimits();
+	private CallLimits rewardCentral = new CallLimits();
+
+	public CallLimits getGpsUtil() {
+		return gpsUtil;
+	}
+
+	public void setGpsUtil(CallLimits gpsUtil) {
+		this.gpsUtil = gpsUtil;
+	}
+
+	public CallLimits getTripPricer() {
+		return tripPricer;
+	}
+
+	public void setTripPricer(CallLimits tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+
+	public CallLimits getRewardCentral() {
+		return rewardCentral;
+	}
+
+	public void setRewardCentral(CallLimits rewardCentral) {
+		this.rewardCentral = rewardCentral;
+	}
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.tourguide.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket: up to {@code burst} calls at once, then {@code permitsPerSecond} calls per second.
+ * <p>
+ * Tokens are refilled lazily from the elapsed time when a permit is requested, there is no timer.
+ */
+public class TokenBucketRateLimiter {
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final double permitsPerSecond;
+	private final double burst;
+	private double tokens;
+	private long refillTime = System.nanoTime();
+
+	public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("permitsPerSecond and burst must be positive: " + permitsPerSecond + ", " + burst);
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.tokens = burst;
+	}
+
+	/**
+	 * Takes a token, waiting at most {@code timeoutNanos} for one
+	 *
+	 * @return false when no token was available in time, nothing is taken then
+	 */
+	public boolean tryAcquire(long timeoutNanos) throws InterruptedException {
+		long waitNanos = reserve(timeoutNanos);
+		if (waitNanos < 0) {
+			return false;
+		}
+		TimeUnit.NANOSECONDS.sleep(waitNanos);
+		return true;
+	}
+
+	public synchronized double getAvailableTokens() {
+		refill(System.nanoTime());
+		return tokens;
+	}
+
+	/* Takes a token ahead of time, returns how long to wait for it, or -1 if it is too long */
+	private synchronized long reserve(long timeoutNanos) {
+		long now = System.nanoTime();
+		refill(now);
+		long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / permitsPerSecond);
+		if (waitNanos > timeoutNanos) {
+			return -1;
+		}
+		// Tokens go negative while callers wait for them, later callers wait longer
+		tokens--;
+		return waitNanos;
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(burst, tokens + (now - refillTime) * permitsPerSecond / NANOS_PER_SECOND);
+		refillTime = now;
+	}
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.tourguide.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.event.LocationEvent;
+import com.openclassrooms.tourguide.event.LocationEventBus;
+import com.openclassrooms.tourguide.tracker.PipelineStage;
+
+/**
+ * Rewards the users as their new locations are published on the {@link LocationEventBus}, instead
+ * of after each tracking or in bulk sweeps.
+ * <p>
+ * An event evaluates the locations appended since the user's last calculation: the new location,
+ * unless several events of the user were queued, the first one then evaluates them all and the
+ * next ones find nothing new. Rewards are added to the user as soon as they are produced.
+ */
+public class RewardEngine implements MeterBinder {
+	public static final String SUBSCRIBER = "rewards";
+
+	private final LocationEventBus eventBus;
+	private final PipelineStage<LocationEvent> subscription;
+
+	public RewardEngine(RewardsService rewardsService, LocationEventBus eventBus, int workers, int queueCapacity) {
+		this.eventBus = eventBus;
+		this.subscription = eventBus.subscribe(SUBSCRIBER, workers, queueCapacity,
+				event -> rewardsService.calculateRewards(event.user()));
+	}
+
+	public int getQueueDepth() {
+		return subscription.getQueueDepth();
+	}
+
+	public long getProcessedCount() {
+		return subscription.getProcessedCount();
+	}
+
+	public long getFailedCount() {
+		return subscription.getFailedCount();
+	}
+
+	public void shutdown() {
+		eventBus.unsubscribe(SUBSCRIBER);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("events.queue.depth", this, RewardEngine::getQueueDepth)
+				.tag("subscriber", SUBSCRIBER)
+				.description("Location events waiting for a worker of the subscriber")
+				.register(registry);
+		FunctionCounter.builder("events.processed", this, RewardEngine::getProcessedCount)
+				.tag("subscriber", SUBSCRIBER)
+				.description("Location events handled by the subscriber, failed ones included")
+				.register(registry);
+		FunctionCounter.builder("events.failed", this, RewardEngine::getFailedCount)
+				.tag("subscriber", SUBSCRIBER)
+				.description("Location events the subscriber failed to handle")
+				.register(registry);
+	}
+}
@@ -2,130 +2,281 @@ package com.openclassrooms.tourguide.service;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.springframework.stereotype.Service;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionIndex;
+import com.openclassrooms.tourguide.attraction.GeofenceLayer;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserJournal;
+import com.openclassrooms.tourguide.user.UserPreferences;
 import com.openclassrooms.tourguide.user.UserReward;
 
-@Service
-public class RewardsService {
+public class RewardsService implements MeterBinder {
     private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	// Proximity of users without an attraction proximity of their own, see isWithinAttractionProximity
+	public static final int DEFAULT_ATTRACTION_PROXIMITY_RANGE = 200;
+	// Widest user attraction proximity, farther than any two points of the sphere (about 12,450 miles)
+	public static final int MAX_ATTRACTION_PROXIMITY = 1 << 14;
 
 	// proximity in miles
     private final int defaultProximityBuffer = 10;
-	private int proximityBuffer = defaultProximityBuffer;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
-	private final ForkJoinPool forkJoinPool;
+	private final RewardPointsClient rewardPointsClient;
+	private final AttractionIndex attractionIndex;
+	// Regions of the attractions at the proximity buffer, replaced as a whole when the buffer changes
+	private volatile GeofenceLayer geofences;
+	// Layers of the users' own radiuses, one per bucket: the power of two miles at or above the radius
+	private final Map<Integer, GeofenceLayer> radiusGeofences = new ConcurrentHashMap<>();
+	private final ExecutionStrategy executionStrategy;
+	private final UserJournal userJournal;
+	private final LongAdder calculations = new LongAdder();
+	private final LongAdder evaluatedLocations = new LongAdder();
+	private final LongAdder checkedAttractions = new LongAdder();
+	private final LongAdder rewardedAttractions = new LongAdder();
 
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(gpsUtil, new RewardPointsClient(rewardCentral), ExecutionStrategies.forkJoin());
+	}
 
-		// Init threads pool size
-		int processors = Runtime.getRuntime().availableProcessors();
-		System.out.println("Available processors: " + processors);
+	public RewardsService(GpsUtil gpsUtil, RewardPointsClient rewardPointsClient, ExecutionStrategy executionStrategy) {
+		this(gpsUtil, rewardPointsClient, executionStrategy, UserJournal.NONE);
+	}
 
-		// Minimum pool size of 50 threads (for CICD)
-		int poolSize = Math.max(50, processors * 10);
-		forkJoinPool = new ForkJoinPool(poolSize);
+	/**
+	 * @param userJournal receives the rewards added to the users
+	 */
+	public RewardsService(GpsUtil gpsUtil, RewardPointsClient rewardPointsClient, ExecutionStrategy executionStrategy,
+			UserJournal userJournal) {
+		this.rewardPointsClient = rewardPointsClient;
+		this.executionStrategy = executionStrategy;
+		this.userJournal = userJournal;
 
-		System.out.println("Initialized ForkJoinPool with pool size: " + poolSize);
+		// Attractions never change at runtime: index them once
+		this.attractionIndex = new AttractionIndex(gpsUtil.getAttractions());
+		this.geofences = new GeofenceLayer(attractionIndex, defaultProximityBuffer);
 	}
 	
+	/**
+	 * Rebuilds the geofence layer at the new buffer, then swaps it in: calculations running meanwhile
+	 * complete with the previous buffer, the next ones use the new one
+	 */
 	public void setProximityBuffer(int proximityBuffer) {
-		this.proximityBuffer = proximityBuffer;
-	}
-
-	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
-		List<Attraction> attractions = gpsUtil.getAttractions();
-
-		Set<String> rewardedAttractions = user.getUserRewards().stream()
-				.map(r -> r.attraction.attractionName)
-				.collect(Collectors.toSet());
-
-//		Map<VisitedLocation, Attraction> toBeRewardAttractions = new HashMap<>();
-
-		for (VisitedLocation visitedLocation : userLocations) {
-			attractions.stream()
-					// Filter out attractions already rewarded
-					.filter(attraction -> !rewardedAttractions.contains(attraction.attractionName))
-					// Filter attractions near user's visited location
-					.filter(attraction -> nearAttraction(visitedLocation, attraction))
-					// Calculate rewards and add them to the user
-					.forEach(attraction -> {
-//						toBeRewardAttractions.put(visitedLocation, attraction);
-						int rewardPoints = getRewardPoints(attraction, user);
-						user.addUserReward(new UserReward(visitedLocation, attraction, rewardPoints));
-					});
+		this.geofences = new GeofenceLayer(attractionIndex, proximityBuffer);
+	}
+
+	public int getProximityBuffer() {
+		return (int) geofences.getMiles();
+	}
+
+	/**
+	 * Distance the user is rewarded within: the user's attraction proximity when set, the proximity buffer otherwise
+	 */
+	public int getProximityBuffer(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		return preferences.hasAttractionProximity() ? getAttractionProximity(preferences) : getProximityBuffer();
+	}
+
+	/**
+	 * The attraction proximity of the preferences, within [0, {@value #MAX_ATTRACTION_PROXIMITY}]: the
+	 * reward calculations, the proximity checks and the nearby attractions all use this radius
+	 *
+	 * @param preferences with an attraction proximity, see {@link UserPreferences#hasAttractionProximity()}
+	 */
+	public static int getAttractionProximity(UserPreferences preferences) {
+		return (int) clampProximity(preferences.getAttractionProximity());
+	}
+
+	private static double clampProximity(double miles) {
+		return Math.max(0, Math.min(MAX_ATTRACTION_PROXIMITY, miles));
+	}
+
+	/**
+	 * Rewards the user for the attractions near the visited locations appended since the last calculation,
+	 * within the user's own attraction proximity if set.
+	 *
+	 * @return the number of visited locations evaluated
+	 */
+	public int calculateRewards(User user) {
+		return calculateRewardsAsync(user).join();
+	}
+
+	/**
+	 * Same as {@link #calculateRewards(User)}, the reward points are requested concurrently and the
+	 * returned future completes once every new reward has been added to the user.
+	 */
+	public CompletableFuture<Integer> calculateRewardsAsync(User user) {
+		// One layer for the whole calculation, even if the buffer changes meanwhile
+		GeofenceLayer layer = geofences;
+		int buffer = (int) layer.getMiles();
+		if (user.getUserPreferences().hasAttractionProximity()) {
+			buffer = getProximityBuffer(user);
+			layer = getRadiusGeofences(buffer);
+		}
+		long evaluatedCount = user.getLocationHistory().getAppendedCount();
+		int rewardCount = user.getUserRewardCount();
+		// Locations before the watermark have already been rewarded
+		List<VisitedLocation> newLocations = user.getLocationHistory().range(user.getRewardedLocationCount(buffer), evaluatedCount);
+
+		// Attractions matched by this calculation, so a reward is requested once even if several new locations are near it
+		Set<String> matchedAttractions = new HashSet<>();
+
+		List<CompletableFuture<Void>> newRewards = new ArrayList<>();
+		int[] nearbyAttractions = new int[attractionIndex.size()];
+		for (VisitedLocation visitedLocation : newLocations) {
+			// Attractions near user's visited location, checked in the regions covering its cell only
+			int nearbyCount = layer.withinMiles(visitedLocation.location, buffer, nearbyAttractions);
+			checkedAttractions.add(nearbyCount);
+			for (int i = 0; i < nearbyCount; i++) {
+				Attraction attraction = attractionIndex.getAttraction(nearbyAttractions[i]);
+				// Filter out attractions already rewarded, or being rewarded by a previous location
+				if (user.hasRewardFor(attraction.attractionName) || !matchedAttractions.add(attraction.attractionName)) {
+					continue;
+				}
+				// Calculate rewards and add them to the user
+				newRewards.add(getRewardPointsAsync(attraction, user).thenAccept(rewardPoints -> {
+					UserReward userReward = new UserReward(visitedLocation, attraction, rewardPoints);
+					if (user.addUserReward(userReward)) {
+						rewardedAttractions.increment();
+						userJournal.rewardAdded(user, userReward);
+					}
+				}));
+			}
 		}
 
-//		toBeRewardAttractions.entrySet().parallelStream()
-//				.forEach(entrySet -> {
-//						int rewardPoints = getRewardPoints(entrySet.getValue(), user);
-//						user.addUserReward(new UserReward(entrySet.getKey(), entrySet.getValue(), rewardPoints));
-//				});
+		int evaluatedBuffer = buffer;
+		return CompletableFuture.allOf(newRewards.toArray(CompletableFuture[]::new))
+				.thenApply(done -> {
+					user.setRewardedLocationCount(evaluatedCount, evaluatedBuffer);
+					if (user.getUserRewardCount() != rewardCount) {
+						invalidateRewardPoints(user);
+					}
+					calculations.increment();
+					evaluatedLocations.add(newLocations.size());
+					return newLocations.size();
+				});
 	}
 
 	public void calculateAllUsersRewards(List<User> users) {
-//		try {
-			// Submit the task to the ForkJoinPool
-//			ForkJoinTask<?> task =
-					forkJoinPool.submit(() ->
-					users.parallelStream().forEach(this::calculateRewards)
-			).join();
-
-			// Wait for the task to complete with a timeout of 20 minutes
-//			task.get(20, TimeUnit.MINUTES);
-
-//		} catch (TimeoutException e) {
-//			System.err.println("calculateAllUsersRewards: Execution exceeded 20 minutes!");
-//			throw new RuntimeException("Reward calculation exceeded the allowed time of 20 minutes", e);
-//
-//		} catch (InterruptedException | ExecutionException e) {
-//			System.err.println("calculateAllUsersRewards: An error occurred during execution.");
-//			throw new RuntimeException("Error during reward calculation", e);
-//		}
-
-//		// Adapt pool size to user's list
-//		ExecutorService executorService = Executors.newFixedThreadPool(
-//				Math.min(users.size(), Runtime.getRuntime().availableProcessors())
-//		);
-//
-//		// Execute calculateRewards method using multi-threading
-//		users.forEach(user -> executorService.submit(new Thread(() -> calculateRewards(user))));
-//
-//		// Shutting down
-//		executorService.shutdown();
-//		try {
-//			if (!executorService.awaitTermination(20, TimeUnit.MINUTES)) {
-//				executorService.shutdownNow();
-//			}
-//		} catch (InterruptedException e) {
-//			e.printStackTrace();
-//			executorService.shutdownNow();
-//		}
+		// Users share the layer of their radius bucket, built once before the tasks run
+		users.stream()
+				.filter(user -> user.getUserPreferences().hasAttractionProximity())
+				.mapToInt(this::getProximityBuffer)
+				.distinct()
+				.forEach(this::getRadiusGeofences);
+
+		List<CompletableFuture<Integer>> rewards = executionStrategy.map(users, this::calculateRewardsAsync);
+
+		// Reward points are fetched by the RewardCentral client, not by the strategy threads
+		CompletableFuture.allOf(rewards.toArray(CompletableFuture[]::new)).join();
 	}
 
 	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-		int attractionProximityRange = 200;
-		return !(getDistance(attraction, location) > attractionProximityRange);
+		return !(getDistance(attraction, location) > DEFAULT_ATTRACTION_PROXIMITY_RANGE);
 	}
-	
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return !(getDistance(attraction, visitedLocation.location) > proximityBuffer);
+
+	/**
+	 * Same as {@link #isWithinAttractionProximity(Attraction, Location)} within the user's attraction proximity if set
+	 */
+	public boolean isWithinAttractionProximity(Attraction attraction, Location location, User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		int range = preferences.hasAttractionProximity() ? getAttractionProximity(preferences) : DEFAULT_ATTRACTION_PROXIMITY_RANGE;
+		return !(getDistance(attraction, location) > range);
 	}
 	
+	/**
+	 * Attractions not farther than the given distance from the location, in catalogue order. The distance
+	 * is clamped like {@link #getAttractionProximity(UserPreferences)}.
+	 */
+	public List<Attraction> getAttractionsWithin(Location location, double miles) {
+		return attractionIndex.withinMiles(location, clampProximity(miles));
+	}
+
+	private GeofenceLayer getRadiusGeofences(int radius) {
+		// Up to MAX_ATTRACTION_PROXIMITY, whose layer covers the whole sphere
+		int bucket = radius <= 1 ? 1 : Integer.highestOneBit(radius - 1) << 1;
+		return radiusGeofences.computeIfAbsent(bucket, miles -> new GeofenceLayer(attractionIndex, miles));
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractionIndex.getAttractions();
+	}
+
+	/**
+	 * The closest attractions from the location, closest first
+	 */
+	public List<Attraction> getClosestAttractions(Location location, int count) {
+		return attractionIndex.nearest(location, count);
+	}
+
+	/**
+	 * Same as {@link #getClosestAttractions(Location, int)}, also writing the distance in miles of each
+	 * attraction to {@code distances}, which must have room for {@code count} values
+	 */
+	public List<Attraction> getClosestAttractions(Location location, int count, double[] distances) {
+		return attractionIndex.nearest(location, count, distances);
+	}
+
 	public int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		return getRewardPointsAsync(attraction, user).join();
+	}
+
+	public CompletableFuture<Integer> getRewardPointsAsync(Attraction attraction, User user) {
+		return rewardPointsClient.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+	}
+
+	/**
+	 * Drops the reward points cached for the user, called once a calculation added rewards to the user
+	 */
+	public void invalidateRewardPoints(User user) {
+		rewardPointsClient.invalidateUser(user.getUserId());
+	}
+	
+	public long getCalculationCount() {
+		return calculations.sum();
+	}
+
+	public long getEvaluatedLocationCount() {
+		return evaluatedLocations.sum();
+	}
+
+	/**
+	 * Attractions found within the proximity buffer of the evaluated locations, rewarded or not
+	 */
+	public long getCheckedAttractionCount() {
+		return checkedAttractions.sum();
+	}
+
+	public long getRewardedAttractionCount() {
+		return rewardedAttractions.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("rewards.calculations", this, RewardsService::getCalculationCount)
+				.description("The number of completed reward calculations")
+				.register(registry);
+		FunctionCounter.builder("rewards.locations.evaluated", this, RewardsService::getEvaluatedLocationCount)
+				.description("The number of visited locations evaluated by the reward calculations")
+				.register(registry);
+		FunctionCounter.builder("rewards.attractions", this, RewardsService::getCheckedAttractionCount)
+				.tag("result", "checked")
+				.description("Attractions within the proximity buffer of the evaluated locations, and those rewarded")
+				.register(registry);
+		FunctionCounter.builder("rewards.attractions", this, RewardsService::getRewardedAttractionCount)
+				.tag("result", "rewarded")
+				.description("Attractions within the proximity buffer of the evaluated locations, and those rewarded")
+				.register(registry);
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
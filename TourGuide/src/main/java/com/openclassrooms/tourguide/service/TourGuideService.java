@@ -1,21 +1,35 @@
 package com.openclassrooms.tourguide.service;
 
 import com.openclassrooms.tourguide.NearbyAttractionDTO;
+import com.openclassrooms.tourguide.client.TripDealsClient;
+import com.openclassrooms.tourguide.cluster.ClusterAssignment;
+import com.openclassrooms.tourguide.cluster.ClusterTrackingSchedule;
+import com.openclassrooms.tourguide.event.LocationEvent;
+import com.openclassrooms.tourguide.event.LocationEventBus;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
 import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.tracker.TrackerProperties;
+import com.openclassrooms.tourguide.tracker.TrackingSchedules;
+import com.openclassrooms.tourguide.user.StripedUserStore;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserJournal;
 import com.openclassrooms.tourguide.user.UserReward;
+import com.openclassrooms.tourguide.user.UserStore;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -31,35 +45,63 @@ public class TourGuideService {
 	private final Logger logger = LoggerFactory.getLogger(TourGuideService.class);
 	private final GpsUtil gpsUtil;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final TripDealsClient tripDealsClient;
+	public static final int DEFAULT_NEARBY_ATTRACTIONS = 5;
 	public final Tracker tracker;
 	boolean testMode = true;
 
 	private final SecureRandom random = new SecureRandom();
-//	private final ExecutorService executorService;
-	private final ForkJoinPool forkJoinPool;
+	private final ExecutionStrategy executionStrategy;
+	private final UserJournal userJournal;
+	private final LocationEventBus locationEventBus;
 
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsService = rewardsService;
+		this(gpsUtil, rewardsService, new ForkJoinExecutionStrategy(Runtime.getRuntime().availableProcessors() * 10));
+	}
 
-		// Init threads pool size
-//		int availableProcessors = Runtime.getRuntime().availableProcessors();
-//		this.executorService = Executors.newFixedThreadPool(availableProcessors);
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService, ExecutionStrategy executionStrategy) {
+		this(gpsUtil, rewardsService, executionStrategy, new TrackerProperties());
+	}
+
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService, ExecutionStrategy executionStrategy,
+			TrackerProperties trackerProperties) {
+		this(gpsUtil, rewardsService, executionStrategy, trackerProperties, ClusterAssignment.standalone(),
+				new TripDealsClient(new TripPricer()), new StripedUserStore(), UserJournal.NONE,
+				new LocationEventBus());
+	}
 
-		int processors = Runtime.getRuntime().availableProcessors();
-		int poolSize = processors * 10;
-		forkJoinPool = new ForkJoinPool(poolSize);
+	/**
+	 * @param clusterAssignment users this instance tracks, the other users are tracked by other cluster members
+	 * @param tripDealsClient prices the trip deals
+	 * @param userStore users restored from a previous run, internal test users are only created when it is empty
+	 * @param userJournal receives the users and locations added
+	 * @param locationEventBus receives the locations acquired, users are rewarded on these events once a
+	 * {@link RewardEngine} subscribed
+	 */
+	@Autowired
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService, ExecutionStrategy executionStrategy,
+			TrackerProperties trackerProperties, ClusterAssignment clusterAssignment, TripDealsClient tripDealsClient,
+			UserStore userStore, UserJournal userJournal, LocationEventBus locationEventBus) {
+		this.gpsUtil = gpsUtil;
+		this.internalUserStore = userStore;
+		this.userJournal = userJournal;
+		this.locationEventBus = locationEventBus;
+		this.tripDealsClient = tripDealsClient;
+		this.rewardsService = rewardsService;
+		this.executionStrategy = executionStrategy;
 
 		Locale.setDefault(Locale.US);
 
-		if (testMode) {
+		if (internalUserStore.size() > 0) {
+			logger.info("Starting with {} restored users", internalUserStore.size());
+		} else if (testMode) {
 			logger.info("TestMode enabled");
 			logger.debug("Initializing users");
 			initializeInternalUsers();
 			logger.debug("Finished initializing users");
 		}
-		tracker = new Tracker(this);
+		tracker = new Tracker(this, trackerProperties, new ClusterTrackingSchedule(
+				TrackingSchedules.create(trackerProperties, rewardsService), clusterAssignment));
 		addShutDownHook();
 	}
 
@@ -68,134 +110,200 @@ public class TourGuideService {
 	}
 
 	public VisitedLocation getUserLocation(User user) {
-        return (!user.getVisitedLocations().isEmpty()) ? user.getLastVisitedLocation() : trackUserLocation(user);
+        return (!user.getLocationHistory().isEmpty()) ? user.getLastVisitedLocation() : trackUserLocation(user);
 	}
 
 	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+		return internalUserStore.getByName(userName);
+	}
+
+	public User getUser(UUID userId) {
+		return internalUserStore.getById(userId);
 	}
 
+	/**
+	 * Copy of all users, prefer {@link #getUserStore()} to iterate over them
+	 */
 	public List<User> getAllUsers() {
-		return new ArrayList<>(internalUserMap.values());
+		return internalUserStore.stream().toList();
+	}
+
+	public UserStore getUserStore() {
+		return internalUserStore;
 	}
 
 	public void addUser(User user) {
-		if (!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
+		if (internalUserStore.add(user)) {
+			userJournal.userAdded(user);
+			tracker.addUser(user);
 		}
 	}
 
+	/**
+	 * Writes the last known location of every user as NDJSON, one
+	 * {@code {"userId":"...","latitude":...,"longitude":...}} line per user, users never located are skipped.
+	 * Users are written as the store is iterated, nothing is collected in memory.
+	 *
+	 * @return the number of users written
+	 */
+	public int writeCurrentLocations(Writer writer) throws IOException {
+		double[] coordinates = new double[2];
+		int written = 0;
+		for (User user : internalUserStore) {
+			if (writeCurrentLocation(writer, user, coordinates)) {
+				written++;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the NDJSON line of {@link #writeCurrentLocations(Writer)} for one user
+	 *
+	 * @param coordinates scratch array of 2 elements
+	 * @return false when the user was never located, nothing is written then
+	 */
+	public boolean writeCurrentLocation(Writer writer, User user, double[] coordinates) throws IOException {
+		if (!user.getLocationHistory().readLast(coordinates)) {
+			return false;
+		}
+		writer.write("{\"userId\":\"");
+		writer.write(user.getUserId().toString());
+		writer.write("\",\"latitude\":");
+		writer.write(Double.toString(coordinates[0]));
+		writer.write(",\"longitude\":");
+		writer.write(Double.toString(coordinates[1]));
+		writer.write("}\n");
+		return true;
+	}
+
+	public RewardsService getRewardsService() {
+		return rewardsService;
+	}
+
+	/**
+	 * Prices trips for the user, blocking until the quotes are received
+	 */
 	public List<Provider> getTripDeals(User user) {
+		try {
+			return getTripDealsAsync(user).join();
+		} catch (CompletionException e) {
+			logger.error("TourGuideService.getTripDeals error : {}", e.getCause().getMessage());
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Prices trips for the user without blocking, the quotes are cached for the same preferences and reward points
+	 */
+	public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
 		/* Sum up all user's reward points */
 		int cumulativeRewardPoints = user.getUserRewards().stream()
 				.mapToInt(UserReward::getRewardPoints)
 				.sum();
 
-		CompletableFuture<List<Provider>> futureProviders = new CompletableFuture<>();
-		futureProviders.completeAsync(() -> tripPricer.getPrice(
+		return tripDealsClient.getPrice(
 				TRIP_PRICER_API_KEY,
-                user.getUserId(),
-                user.getUserPreferences().getNumberOfAdults(),
-                user.getUserPreferences().getNumberOfChildren(),
-                user.getUserPreferences().getTripDuration(),
-                cumulativeRewardPoints
-        ));
-
-        List<Provider> providers;
-        try {
-            providers = futureProviders.get();
+				user.getUserId(),
+				user.getUserPreferences().getNumberOfAdults(),
+				user.getUserPreferences().getNumberOfChildren(),
+				user.getUserPreferences().getTripDuration(),
+				cumulativeRewardPoints
+		).thenApply(providers -> {
 			logger.info("Got {} providers", providers.size());
-
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("TourGuideService.getTripDeals error : {}", e.getMessage());
-            throw new RuntimeException(e);
-        }
-
-        user.setTripDeals(providers);
-
-		return providers;
+			user.setTripDeals(providers);
+			return providers;
+		});
 	}
 
 	public VisitedLocation trackUserLocation(User user) {
+		VisitedLocation visitedLocation = acquireUserLocation(user);
+		updateUserRewards(user);
+		return visitedLocation;
+	}
+
+	/**
+	 * Gets the current user location from GpsUtil, adds it to the user's history and publishes it
+	 */
+	public VisitedLocation acquireUserLocation(User user) {
 		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
-		rewardsService.calculateRewards(user);
+		long sequence = user.addToVisitedLocations(visitedLocation);
+		userJournal.locationAdded(user, sequence, visitedLocation);
+		locationEventBus.publish(new LocationEvent(user, sequence, visitedLocation));
 		return visitedLocation;
 	}
 
-	public List<VisitedLocation> trackAllUsersLocation(List<User> users) {
-		return forkJoinPool.submit(() ->
-				users.parallelStream()
-						.map(this::trackUserLocation)
-						.toList()
-		).join();
-
-//		return users.parallelStream()
-//				.map(this::trackUserLocation)
-//				.collect(Collectors.toList());
-
-//		List<VisitedLocation> visitedLocations = Collections.synchronizedList(new ArrayList<>());
-//		List<CompletableFuture<Void>> futures = new ArrayList<>();
-//
-//		for (User user : users) {
-//			CompletableFuture<Void> future = CompletableFuture.supplyAsync(() -> {
-//				VisitedLocation visitedLocation = trackUserLocation(user);
-//				visitedLocations.add(visitedLocation);
-//				return visitedLocation;
-//			}, executorService).thenAccept(result -> {});
-//
-//			futures.add(future);
-//		}
-//
-//		CompletableFuture<Void> allOf = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-//		allOf.join();
-//
-//		return visitedLocations;
+	/**
+	 * Rewards the user for the new locations, unless the {@link RewardEngine} does it when they are published
+	 */
+	public void updateUserRewards(User user) {
+		if (!locationEventBus.isSubscribed(RewardEngine.SUBSCRIBER)) {
+			rewardsService.calculateRewards(user);
+		}
 	}
 
-//	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-//		List<Attraction> nearbyAttractions = new ArrayList<>();
-//		for (Attraction attraction : gpsUtil.getAttractions()) {
-//			if (rewardsService.isWithinAttractionProximity(attraction, visitedLocation.location)) {
-//				nearbyAttractions.add(attraction);
-//			}
-//		}
-//
-//		return nearbyAttractions;
-//	}
+	public List<VisitedLocation> trackAllUsersLocation(List<User> users) {
+		return executionStrategy.map(users, this::trackUserLocation);
+	}
 
 	public List<NearbyAttractionDTO> getNearByAttractions(VisitedLocation visitedLocation, User user) {
-		List<NearbyAttractionDTO> nearbyAttractionsDTO = new ArrayList<>();
-		List<Attraction> allAttractions = gpsUtil.getAttractions();
-
-		/* Sort attractions by their distance from user's location in ASC */
-		allAttractions.sort(
-				Comparator.comparingDouble(
-						attraction -> rewardsService.getDistance(attraction, visitedLocation.location)
-				)
-		);
-
-		/* Get the 5 closest attractions */
-		for (int i = 0; i < 5; i++) {
-			Attraction attraction = allAttractions.get(i);
-
-			/* Calculate distance between attraction and user's location */
-			double distance = rewardsService.getDistance(attraction, visitedLocation.location);
+		return getNearByAttractions(visitedLocation, user, DEFAULT_NEARBY_ATTRACTIONS);
+	}
 
-			int rewardPoints = rewardsService.getRewardPoints(attraction, user);
+	/**
+	 * The closest attractions from the location, closest first, only those within the user's attraction
+	 * proximity when the user set one
+	 */
+	public List<NearbyAttractionDTO> getNearByAttractions(VisitedLocation visitedLocation, User user, int count) {
+		return getNearByAttractionsAsync(visitedLocation, user, count).join();
+	}
 
-			nearbyAttractionsDTO.add(new NearbyAttractionDTO(
-					attraction.attractionName,
-					attraction.latitude,
-					attraction.longitude,
-					visitedLocation.location.latitude,
-					visitedLocation.location.longitude,
-					distance,
-					rewardPoints
-			));
+	/**
+	 * Same as {@link #getNearByAttractions(VisitedLocation, User, int)} without blocking, completed once
+	 * the reward points of every attraction are received
+	 */
+	public CompletableFuture<List<NearbyAttractionDTO>> getNearByAttractionsAsync(VisitedLocation visitedLocation, User user, int count) {
+		/* Get the closest attractions, sorted by their distance from user's location in ASC, with their distance */
+		int attractionCount = Math.max(0, Math.min(count, rewardsService.getAttractions().size()));
+		double[] distances = new double[attractionCount];
+		List<Attraction> closestAttractions = rewardsService.getClosestAttractions(visitedLocation.location, attractionCount, distances);
+
+		/* Drop those beyond the user's own radius, the farthest come last */
+		if (user.getUserPreferences().hasAttractionProximity()) {
+			int radius = RewardsService.getAttractionProximity(user.getUserPreferences());
+			int withinRadius = 0;
+			while (withinRadius < closestAttractions.size() && distances[withinRadius] <= radius) {
+				withinRadius++;
+			}
+			closestAttractions = closestAttractions.subList(0, withinRadius);
 		}
 
-		return nearbyAttractionsDTO;
+		/* Request all reward points at once, then build the DTOs once all of them are received */
+		List<Attraction> attractions = closestAttractions;
+		List<CompletableFuture<Integer>> rewardPoints = attractions.stream()
+				.map(attraction -> rewardsService.getRewardPointsAsync(attraction, user))
+				.toList();
+
+		return CompletableFuture.allOf(rewardPoints.toArray(CompletableFuture[]::new)).thenApply(done -> {
+			List<NearbyAttractionDTO> nearbyAttractionsDTO = new ArrayList<>();
+			for (int i = 0; i < attractions.size(); i++) {
+				Attraction attraction = attractions.get(i);
+
+				nearbyAttractionsDTO.add(new NearbyAttractionDTO(
+						attraction.attractionName,
+						attraction.latitude,
+						attraction.longitude,
+						visitedLocation.location.latitude,
+						visitedLocation.location.longitude,
+						distances[i],
+						rewardPoints.get(i).join()
+				));
+			}
+			return nearbyAttractionsDTO;
+		});
 	}
 
 	private void addShutDownHook() {
@@ -215,7 +323,7 @@ public class TourGuideService {
 	private static final String TRIP_PRICER_API_KEY = "test-server-api-key";
 	// Database connection will be used for external users, but for testing purposes
 	// internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
+	private final UserStore internalUserStore;
 
 	private void initializeInternalUsers() {
 		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
@@ -225,7 +333,9 @@ public class TourGuideService {
 			User user = new User(UUID.randomUUID(), userName, phone, email);
 			generateUserLocationHistory(user);
 
-			internalUserMap.put(userName, user);
+			if (internalUserStore.add(user)) {
+				userJournal.userAdded(user);
+			}
 		});
 		logger.debug("Created {} internal test users.", InternalTestHelper.getInternalUserNumber());
 	}
@@ -0,0 +1,65 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.List;
+
+import gpsUtil.location.VisitedLocation;
+
+import com.openclassrooms.tourguide.attraction.SphericalGeometry;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.LocationHistory;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Tracks often the users likely to need it, and backs off on the others:
+ * <ul>
+ *     <li>user active in the app recently: minimum interval</li>
+ *     <li>user close to an attraction: at most half the base interval, a reward may be near</li>
+ *     <li>user who moved since the previous location: base interval</li>
+ *     <li>stationary user: previous interval doubled, up to the maximum interval</li>
+ * </ul>
+ */
+public class AdaptiveTrackingPolicy implements TrackingPolicy {
+
+	private final RewardsService rewardsService;
+	private final long baseInterval;
+	private final long minInterval;
+	private final long maxInterval;
+	private final long activeWindow;
+	private final double stationaryMiles;
+	private final double nearAttractionMiles;
+
+	public AdaptiveTrackingPolicy(RewardsService rewardsService, TrackerProperties properties) {
+		this.rewardsService = rewardsService;
+		this.baseInterval = properties.getInterval().toMillis();
+		this.minInterval = properties.getMinInterval().toMillis();
+		this.maxInterval = properties.getMaxInterval().toMillis();
+		this.activeWindow = properties.getActiveWindow().toMillis();
+		this.stationaryMiles = properties.getStationaryMiles();
+		this.nearAttractionMiles = properties.getNearAttractionMiles();
+	}
+
+	@Override
+	public long nextInterval(User user, long previousInterval, long now) {
+		if (user.getLastAccessTime() > 0 && now - user.getLastAccessTime() <= activeWindow) {
+			return minInterval;
+		}
+
+		LocationHistory history = user.getLocationHistory();
+		List<VisitedLocation> lastLocations = history.range(history.getAppendedCount() - 2, history.getAppendedCount());
+		if (lastLocations.isEmpty()) {
+			return baseInterval;
+		}
+
+		VisitedLocation lastLocation = lastLocations.get(lastLocations.size() - 1);
+		boolean moved = lastLocations.size() < 2
+				|| SphericalGeometry.distanceMiles(lastLocations.get(0).location, lastLocation.location) > stationaryMiles;
+		long interval = moved ? baseInterval : Math.min(Math.max(previousInterval, baseInterval) * 2, maxInterval);
+
+		double[] distance = new double[1];
+		if (!rewardsService.getClosestAttractions(lastLocation.location, 1, distance).isEmpty()
+				&& distance[0] <= nearAttractionMiles) {
+			interval = Math.min(interval, baseInterval / 2);
+		}
+		return Math.max(interval, minInterval);
+	}
+}
@@ -0,0 +1,188 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * {@link TrackingSchedule} splitting users in hash partitions, each partition being due once per
+ * interval at its own offset: partition {@code p} of {@code n} starts at {@code p * interval / n}
+ * in the cycle. GpsUtil and RewardCentral get a steady flow of requests instead of one burst
+ * per interval.
+ * <p>
+ * Each partition has a window, from its planned start to the next partition's start. The start
+ * lag (dispatched after the planned start) and the completion lag (completed after the end of its
+ * window) of the last cycle of each partition show whether the tracker keeps up: both stay at 0
+ * while a full cycle fits in the interval.
+ */
+public class PartitionedTrackingSchedule implements TrackingSchedule, MeterBinder {
+
+	private final long interval;
+	private final long window;
+	private final Partition[] partitions;
+	private final Map<UUID, Partition> partitionOf = new HashMap<>();
+	private boolean started;
+
+	public PartitionedTrackingSchedule(long interval, int partitionCount) {
+		if (partitionCount < 1) {
+			throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+		}
+		this.interval = interval;
+		this.window = interval / partitionCount;
+		this.partitions = new Partition[partitionCount];
+		for (int p = 0; p < partitionCount; p++) {
+			partitions[p] = new Partition(p);
+		}
+	}
+
+	/**
+	 * The first user added starts the cycle at {@code dueTime}, later users are tracked with their partition
+	 */
+	@Override
+	public synchronized void add(User user, long dueTime) {
+		if (partitionOf.containsKey(user.getUserId())) {
+			return;
+		}
+		if (!started) {
+			for (Partition partition : partitions) {
+				partition.plannedTime = dueTime + partition.index * window;
+			}
+			started = true;
+		}
+		int hash = user.getUserId().hashCode();
+		Partition partition = partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+		partition.users.add(user);
+		partitionOf.put(user.getUserId(), partition);
+	}
+
+	@Override
+	public synchronized List<User> pollDue(long now) {
+		List<User> dueUsers = new ArrayList<>();
+		for (Partition partition : partitions) {
+			if (partition.outstanding > 0 || partition.plannedTime > now) {
+				continue;
+			}
+			partition.startLag = now - partition.plannedTime;
+			partition.dispatchedTime = now;
+			partition.outstanding = partition.users.size();
+			dueUsers.addAll(partition.users);
+			if (partition.outstanding == 0) {
+				partition.complete(now);
+			}
+		}
+		return dueUsers;
+	}
+
+	@Override
+	public synchronized void completed(User user, long now) {
+		Partition partition = partitionOf.get(user.getUserId());
+		if (partition != null && partition.outstanding > 0 && --partition.outstanding == 0) {
+			partition.complete(now);
+		}
+	}
+
+	/**
+	 * Same as {@link #completed(User, long)}, partitions come back every interval whatever their users
+	 */
+	@Override
+	public void skipped(User user, long now) {
+		completed(user, now);
+	}
+
+	@Override
+	public synchronized long getNextDueTime() {
+		long nextDueTime = Long.MAX_VALUE;
+		for (Partition partition : partitions) {
+			if (partition.outstanding == 0 && started) {
+				nextDueTime = Math.min(nextDueTime, partition.plannedTime);
+			}
+		}
+		return nextDueTime;
+	}
+
+	@Override
+	public synchronized int size() {
+		return partitionOf.size();
+	}
+
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	public synchronized int getPartitionSize(int partition) {
+		return partitions[partition].users.size();
+	}
+
+	/**
+	 * Milliseconds between the planned start of the last cycle of the partition and its dispatch
+	 */
+	public synchronized long getStartLag(int partition) {
+		return partitions[partition].startLag;
+	}
+
+	/**
+	 * Milliseconds the last cycle of the partition completed after the end of its window, 0 if inside
+	 */
+	public synchronized long getCompletionLag(int partition) {
+		return partitions[partition].completionLag;
+	}
+
+	/**
+	 * Milliseconds the last cycle of the partition took, from dispatch to its last user
+	 */
+	public synchronized long getLastDuration(int partition) {
+		return partitions[partition].lastDuration;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (int p = 0; p < partitions.length; p++) {
+			int partition = p;
+			String tag = String.valueOf(p);
+			Gauge.builder("tracker.partition.users", this, schedule -> schedule.getPartitionSize(partition))
+					.tag("partition", tag)
+					.description("The number of users in this tracker partition")
+					.register(registry);
+			Gauge.builder("tracker.partition.start.lag", this, schedule -> schedule.getStartLag(partition))
+					.tag("partition", tag)
+					.baseUnit("milliseconds")
+					.description("How late the last cycle of this partition was dispatched")
+					.register(registry);
+			Gauge.builder("tracker.partition.completion.lag", this, schedule -> schedule.getCompletionLag(partition))
+					.tag("partition", tag)
+					.baseUnit("milliseconds")
+					.description("How long after the end of its window the last cycle of this partition completed")
+					.register(registry);
+		}
+	}
+
+	private class Partition {
+		private final int index;
+		private final List<User> users = new ArrayList<>();
+		private long plannedTime;
+		private long dispatchedTime;
+		// Users of the current cycle not completed yet, 0 when the partition is waiting for its next cycle
+		private int outstanding;
+		private long startLag;
+		private long completionLag;
+		private long lastDuration;
+
+		Partition(int index) {
+			this.index = index;
+		}
+
+		void complete(long now) {
+			lastDuration = now - dispatchedTime;
+			completionLag = Math.max(0, now - (plannedTime + window));
+			plannedTime += interval;
+		}
+	}
+}
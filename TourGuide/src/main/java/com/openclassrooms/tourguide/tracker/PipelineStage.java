@@ -0,0 +1,203 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * One step of the {@link TrackerPipeline}: a bounded queue drained by its own workers.
+ * <p>
+ * {@link #submit(Object)} blocks while the queue is full, so a slow stage pushes back on the
+ * stages feeding it instead of letting work pile up in memory. An item whose task throws, even an
+ * {@link Error}, is counted as failed and leaves the pipeline: the worker goes on with the next one.
+ * <p>
+ * The statistics getters cover the current tick, the meters cover the stage's lifetime.
+ */
+public class PipelineStage<T> implements MeterBinder {
+	private final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+	private final String name;
+	private final BlockingQueue<T> queue;
+	private final List<Thread> workers = new ArrayList<>();
+	private final Consumer<T> task;
+	private final PipelineStage<T> next;
+	private final Consumer<T> onDone;
+
+	private final LongAdder processed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+	// Never reset, for the meters
+	private final LongAdder failedTotal = new LongAdder();
+	// Null until bound to a registry
+	private volatile Timer latencyTimer;
+
+	/**
+	 * @param task work done for each item
+	 * @param next stage receiving the items once processed, null for the last stage
+	 * @param onDone called for items leaving the pipeline: processed by the last stage, or failed
+	 */
+	public PipelineStage(String name, int workerCount, int queueCapacity,
+			Consumer<T> task, PipelineStage<T> next, Consumer<T> onDone) {
+		this.name = name;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.task = task;
+		this.next = next;
+		this.onDone = onDone;
+
+		for (int i = 0; i < workerCount; i++) {
+			Thread worker = new Thread(this::work, "tracker-" + name + "-" + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+		}
+	}
+
+	public void start() {
+		workers.forEach(Thread::start);
+	}
+
+	public void shutdown() {
+		workers.forEach(Thread::interrupt);
+	}
+
+	/**
+	 * Queues the item, waiting for space if the stage is saturated
+	 */
+	public void submit(T item) throws InterruptedException {
+		queue.put(item);
+		maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+	}
+
+	private void work() {
+		while (!Thread.currentThread().isInterrupted()) {
+			T item;
+			try {
+				item = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			long start = System.nanoTime();
+			boolean succeeded = process(item);
+			long latency = System.nanoTime() - start;
+			processed.increment();
+			totalLatencyNanos.add(latency);
+			maxLatencyNanos.accumulateAndGet(latency, Math::max);
+			Timer timer = latencyTimer;
+			if (timer != null) {
+				timer.record(latency, TimeUnit.NANOSECONDS);
+			}
+
+			if (!succeeded || next == null) {
+				onDone.accept(item);
+			} else {
+				try {
+					next.submit(item);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					onDone.accept(item);
+				}
+			}
+		}
+	}
+
+	private boolean process(T item) {
+		try {
+			task.accept(item);
+			return true;
+		} catch (Throwable e) {
+			failed.increment();
+			failedTotal.increment();
+			logger.error("Tracker stage {} failed: {}", name, e.toString());
+			return false;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getWorkerCount() {
+		return workers.size();
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	public long getProcessedCount() {
+		return processed.sum();
+	}
+
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	public double getAverageLatencyMillis() {
+		long count = processed.sum();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.sum() / count) / 1000.0;
+	}
+
+	public double getMaxLatencyMillis() {
+		return TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()) / 1000.0;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		latencyTimer = Timer.builder("tracker.stage.latency")
+				.tag("stage", name)
+				.description("Time an item spends in the task of this tracker stage")
+				.publishPercentileHistogram()
+				.register(registry);
+		Gauge.builder("tracker.stage.queue.depth", queue, BlockingQueue::size)
+				.tag("stage", name)
+				.description("The number of items waiting for a worker of this tracker stage")
+				.register(registry);
+		Gauge.builder("tracker.stage.workers", workers, List::size)
+				.tag("stage", name)
+				.description("The number of workers of this tracker stage")
+				.register(registry);
+		FunctionCounter.builder("tracker.stage.failures", failedTotal, LongAdder::sum)
+				.tag("stage", name)
+				.description("The number of items whose task failed in this tracker stage")
+				.register(registry);
+	}
+
+	/**
+	 * Clears the per tick statistics
+	 */
+	public void resetStatistics() {
+		processed.reset();
+		failed.reset();
+		totalLatencyNanos.reset();
+		maxLatencyNanos.set(0);
+		maxQueueDepth.set(queue.size());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[workers=%d, processed=%d, failed=%d, queue=%d, maxQueue=%d, avgLatency=%.1fms, maxLatency=%.1fms]",
+				name, getWorkerCount(), getProcessedCount(), getFailedCount(), getQueueDepth(), getMaxQueueDepth(),
+				getAverageLatencyMillis(), getMaxLatencyMillis());
+	}
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * {@link TrackingSchedule} ordering users by due time in a priority queue, the interval of each
+ * user being chosen by a {@link TrackingPolicy}. Polling only touches the users due, never the
+ * whole user base.
+ */
+public class PriorityTrackingSchedule implements TrackingSchedule {
+
+	private final TrackingPolicy policy;
+	private final long initialInterval;
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.dueTime));
+	// Every scheduled user, queued or being tracked
+	private final Map<UUID, Entry> entries = new HashMap<>();
+
+	/**
+	 * @param initialInterval interval handed to the policy for the first tracking of a user
+	 */
+	public PriorityTrackingSchedule(TrackingPolicy policy, long initialInterval) {
+		this.policy = policy;
+		this.initialInterval = initialInterval;
+	}
+
+	@Override
+	public synchronized void add(User user, long dueTime) {
+		if (entries.containsKey(user.getUserId())) {
+			return;
+		}
+		Entry entry = new Entry(user, dueTime, initialInterval);
+		entries.put(user.getUserId(), entry);
+		queue.add(entry);
+	}
+
+	@Override
+	public synchronized List<User> pollDue(long now) {
+		List<User> dueUsers = new ArrayList<>();
+		while (!queue.isEmpty() && queue.peek().dueTime <= now) {
+			dueUsers.add(queue.poll().user);
+		}
+		return dueUsers;
+	}
+
+	@Override
+	public synchronized void completed(User user, long now) {
+		Entry entry = entries.get(user.getUserId());
+		if (entry == null) {
+			return;
+		}
+		entry.interval = policy.nextInterval(user, entry.interval, now);
+		entry.dueTime = now + entry.interval;
+		queue.add(entry);
+	}
+
+	/**
+	 * Back to the initial interval: the user is due again once per initial interval until tracked
+	 */
+	@Override
+	public synchronized void skipped(User user, long now) {
+		Entry entry = entries.get(user.getUserId());
+		if (entry == null) {
+			return;
+		}
+		entry.interval = initialInterval;
+		entry.dueTime = now + entry.interval;
+		queue.add(entry);
+	}
+
+	@Override
+	public synchronized long getNextDueTime() {
+		return queue.isEmpty() ? Long.MAX_VALUE : queue.peek().dueTime;
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private static class Entry {
+		private final User user;
+		private long dueTime;
+		private long interval;
+
+		Entry(User user, long dueTime, long interval) {
+			this.user = user;
+			this.dueTime = dueTime;
+			this.interval = interval;
+		}
+	}
+}
@@ -4,38 +4,120 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
 
-public class Tracker extends Thread {
+/**
+ * Tracks the users when their {@link TrackingSchedule} says they are due, running each batch of
+ * due users through the {@link TrackerPipeline}.
+ * <p>
+ * A cycle is one batch of due users, from dispatch until every user went through the pipeline.
+ * Alert when {@code tracker.cycle.duration} gets close to {@code tracker.interval}: the tracker
+ * no longer keeps up with the schedule.
+ */
+public class Tracker extends Thread implements MeterBinder {
 	private final Logger logger = LoggerFactory.getLogger(Tracker.class);
-	private static final long TRACKING_POLLING_INTERVAL = TimeUnit.MINUTES.toSeconds(5);
+	// Longest wait between two looks at the schedule, users added meanwhile wait at most this long
+	private static final long MAX_SLEEP_MILLIS = TimeUnit.SECONDS.toMillis(1);
 	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
-	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final TrackerPipeline pipeline;
+	private final TrackingSchedule schedule;
+	private final long intervalMillis;
+	private final LongAdder trackedUsers = new LongAdder();
+	private volatile double lastCycleUsersPerSecond;
+	// Null until bound to a registry
+	private volatile Timer cycleDuration;
+	private volatile boolean stop = false;
 
 	public Tracker(TourGuideService tourGuideService) {
-		this.tourGuideService = tourGuideService;
+		this(tourGuideService, new TrackerProperties());
+	}
+
+	public Tracker(TourGuideService tourGuideService, TrackerProperties properties) {
+		this(tourGuideService, properties, TrackingSchedules.create(properties, tourGuideService.getRewardsService()));
+	}
 
+	public Tracker(TourGuideService tourGuideService, TrackerProperties properties, TrackingSchedule schedule) {
+		this.pipeline = new TrackerPipeline(tourGuideService, properties);
+		this.schedule = schedule;
+		this.intervalMillis = properties.getInterval().toMillis();
+
+		// Every known user is due right away
+		long now = System.currentTimeMillis();
+		tourGuideService.getUserStore().forEach(user -> schedule.add(user, now));
+
+		pipeline.start();
 		executorService.submit(this);
 	}
 
+	/**
+	 * Schedules a new user, tracked right away
+	 */
+	public void addUser(User user) {
+		schedule.add(user, System.currentTimeMillis());
+	}
+
 	/**
 	 * Assures to shut down the Tracker thread
 	 */
 	public void stopTracking() {
 		stop = true;
 		executorService.shutdownNow();
+		pipeline.shutdown();
+	}
+
+	public TrackerPipeline getPipeline() {
+		return pipeline;
+	}
+
+	public TrackingSchedule getSchedule() {
+		return schedule;
+	}
+
+	public long getTrackedUsers() {
+		return trackedUsers.sum();
+	}
+
+	/**
+	 * Users tracked per second by the last cycle, from dispatch to the last user leaving the pipeline
+	 */
+	public double getLastCycleUsersPerSecond() {
+		return lastCycleUsersPerSecond;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		cycleDuration = Timer.builder("tracker.cycle.duration")
+				.description("Time to track one batch of due users")
+				.publishPercentileHistogram()
+				.register(registry);
+		FunctionCounter.builder("tracker.users.tracked", this, Tracker::getTrackedUsers)
+				.description("The number of users tracked")
+				.register(registry);
+		Gauge.builder("tracker.cycle.throughput", this, Tracker::getLastCycleUsersPerSecond)
+				.baseUnit("users/s")
+				.description("Users tracked per second by the last cycle")
+				.register(registry);
+		Gauge.builder("tracker.interval", this, tracker -> tracker.intervalMillis / 1000.0)
+				.baseUnit("seconds")
+				.description("The interval every user should be tracked within")
+				.register(registry);
+		pipeline.getStages().forEach(stage -> stage.bindTo(registry));
 	}
 
 	@Override
 	public void run() {
-		StopWatch stopWatch = new StopWatch();
 		while (true) {
 
 			if (Thread.currentThread().isInterrupted() || stop) {
@@ -43,20 +125,29 @@ public class Tracker extends Thread {
 				break;
 			}
 
-			List<User> users = tourGuideService.getAllUsers();
+			List<User> dueUsers = schedule.pollDue(System.currentTimeMillis());
+			if (!dueUsers.isEmpty()) {
+				logger.debug("Begin Tracker. Tracking {} of {} users.", dueUsers.size(), schedule.size());
+				long start = System.nanoTime();
 
-			logger.debug("Begin Tracker. Tracking {} users.", users.size());
-			stopWatch.start();
+				try {
+					pipeline.track(dueUsers);
+				} catch (InterruptedException e) {
+					break;
+				}
 
-			users.forEach(tourGuideService::trackUserLocation);
+				long now = System.currentTimeMillis();
+				dueUsers.forEach(user -> schedule.completed(user, now));
 
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: {} seconds.", TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
-			stopWatch.reset();
+				long elapsed = System.nanoTime() - start;
+				recordCycle(dueUsers.size(), elapsed);
+				logger.debug("Tracker Time Elapsed: {} seconds.", TimeUnit.NANOSECONDS.toSeconds(elapsed));
+				pipeline.getStages().forEach(stage -> logger.debug("Tracker stage {}", stage));
+			}
 
 			try {
-				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(TRACKING_POLLING_INTERVAL);
+				long untilNextDue = schedule.getNextDueTime() - System.currentTimeMillis();
+				TimeUnit.MILLISECONDS.sleep(Math.max(0, Math.min(untilNextDue, MAX_SLEEP_MILLIS)));
 
 			} catch (InterruptedException e) {
 				break;
@@ -64,4 +155,13 @@ public class Tracker extends Thread {
 		}
 
 	}
+
+	private void recordCycle(int users, long elapsedNanos) {
+		trackedUsers.add(users);
+		lastCycleUsersPerSecond = users * 1e9 / Math.max(1, elapsedNanos);
+		Timer timer = cycleDuration;
+		if (timer != null) {
+			timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+		}
+	}
 }
@@ -0,0 +1,89 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import gpsUtil.location.VisitedLocation;
+
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Tracks users through three stages connected by bounded queues:
+ * <ol>
+ *     <li>location: gets the user location from GpsUtil and appends it to the history</li>
+ *     <li>rewards: rewards the user for the attractions near the new location, left to the
+ *     {@code RewardEngine} when it subscribed to the location events</li>
+ *     <li>notification: records the tracking result on the user</li>
+ * </ol>
+ * A slow RewardCentral only saturates the rewards stage, locations keep being acquired
+ * until the queue in front of it is full.
+ */
+public class TrackerPipeline {
+
+	private final PipelineStage<TrackingTask> locationStage;
+	private final PipelineStage<TrackingTask> rewardStage;
+	private final PipelineStage<TrackingTask> notificationStage;
+
+	public TrackerPipeline(TourGuideService tourGuideService, TrackerProperties properties) {
+		notificationStage = new PipelineStage<>("notification",
+				properties.getNotificationWorkers(), properties.getQueueCapacity(),
+				task -> task.user.setLatestLocationTimestamp(task.visitedLocation.timeVisited),
+				null, TrackingTask::done);
+		rewardStage = new PipelineStage<>("rewards",
+				properties.getRewardWorkers(), properties.getQueueCapacity(),
+				task -> tourGuideService.updateUserRewards(task.user),
+				notificationStage, TrackingTask::done);
+		locationStage = new PipelineStage<>("location",
+				properties.getLocationWorkers(), properties.getQueueCapacity(),
+				task -> task.visitedLocation = tourGuideService.acquireUserLocation(task.user),
+				rewardStage, TrackingTask::done);
+	}
+
+	public void start() {
+		notificationStage.start();
+		rewardStage.start();
+		locationStage.start();
+	}
+
+	public void shutdown() {
+		locationStage.shutdown();
+		rewardStage.shutdown();
+		notificationStage.shutdown();
+	}
+
+	/**
+	 * Runs every user through the pipeline and waits until all of them went through the last stage
+	 */
+	public void track(Iterable<User> users) throws InterruptedException {
+		getStages().forEach(PipelineStage::resetStatistics);
+
+		// One permit released per user leaving the pipeline
+		Semaphore tick = new Semaphore(0);
+		int submitted = 0;
+		for (User user : users) {
+			locationStage.submit(new TrackingTask(user, tick));
+			submitted++;
+		}
+		tick.acquire(submitted);
+	}
+
+	public List<PipelineStage<?>> getStages() {
+		return List.of(locationStage, rewardStage, notificationStage);
+	}
+
+	private static class TrackingTask {
+		private final User user;
+		private final Semaphore tick;
+		private VisitedLocation visitedLocation;
+
+		TrackingTask(User user, Semaphore tick) {
+			this.user = user;
+			this.tick = tick;
+		}
+
+		void done() {
+			tick.release();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.time.Duration;
+
+/**
+ * Tracker settings, bound to the {@code tourguide.tracker} properties.
+ */
+public class TrackerProperties {
+
+	// Workers of each pipeline stage
+	private int locationWorkers = 32;
+	private int rewardWorkers = 16;
+	private int notificationWorkers = 2;
+	// Capacity of the queue in front of each stage
+	private int queueCapacity = 1000;
+	// When users are tracked, see TrackingSchedules
+	private String schedule = TrackingSchedules.ADAPTIVE;
+	private Duration interval = Duration.ofMinutes(5);
+	// Partitioned schedule: number of partitions dispatched one after the other within the interval
+	private int partitions = 12;
+	// Adaptive schedule bounds, and what makes a user active, stationary or close to an attraction
+	private Duration minInterval = Duration.ofMinutes(1);
+	private Duration maxInterval = Duration.ofMinutes(30);
+	private Duration activeWindow = Duration.ofMinutes(15);
+	private double stationaryMiles = 0.1;
+	private double nearAttractionMiles = 20;
+
+	public int getLocationWorkers() {
+		return locationWorkers;
+	}
+
+	public void setLocationWorkers(int locationWorkers) {
+		this.locationWorkers = locationWorkers;
+	}
+
+	public int getRewardWorkers() {
+		return rewardWorkers;
+	}
+
+	public void setRewardWorkers(int rewardWorkers) {
+		this.rewardWorkers = rewardWorkers;
+	}
+
+	public int getNotificationWorkers() {
+		return notificationWorkers;
+	}
+
+	public void setNotificationWorkers(int notificationWorkers) {
+		this.notificationWorkers = notificationWorkers;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public String getSchedule() {
+		return schedule;
+	}
+
+	public void setSchedule(String schedule) {
+		this.schedule = schedule;
+	}
+
+	public Duration getInterval() {
+		return interval;
+	}
+
+	public void setInterval(Duration interval) {
+		this.interval = interval;
+	}
+
+	public int getPartitions() {
+		return partitions;
+	}
+
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+
+	public Duration getMinInterval() {
+		return minInterval;
+	}
+
+	public void setMinInterval(Duration minInterval) {
+		this.minInterval = minInterval;
+	}
+
+	public Duration getMaxInterval() {
+		return maxInterval;
+	}
+
+	public void setMaxInterval(Duration maxInterval) {
+		this.maxInterval = maxInterval;
+	}
+
+	public Duration getActiveWindow() {
+		return activeWindow;
+	}
+
+	public void setActiveWindow(Duration activeWindow) {
+		this.activeWindow = activeWindow;
+	}
+
+	public double getStationaryMiles() {
+		return stationaryMiles;
+	}
+
+	public void setStationaryMiles(double stationaryMiles) {
+		this.stationaryMiles = stationaryMiles;
+	}
+
+	public double getNearAttractionMiles() {
+		return nearAttractionMiles;
+	}
+
+	public void setNearAttractionMiles(double nearAttractionMiles) {
+		this.nearAttractionMiles = nearAttractionMiles;
+	}
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.tracker;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Interval until the next tracking of a user, given the interval used until now
+ */
+@FunctionalInterface
+public interface TrackingPolicy {
+
+	long nextInterval(User user, long previousInterval, long now);
+}
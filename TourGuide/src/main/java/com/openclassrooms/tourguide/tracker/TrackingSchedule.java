@@ -0,0 +1,40 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.List;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Decides when each user is tracked next. The {@link Tracker} polls the users due, runs them
+ * through the pipeline, then hands them back with {@link #completed(User, long)}.
+ */
+public interface TrackingSchedule {
+
+	/**
+	 * Schedules a user not scheduled yet, adding a user twice has no effect
+	 */
+	void add(User user, long dueTime);
+
+	/**
+	 * Removes and returns the users due at {@code now}, they are not due again until completed
+	 */
+	List<User> pollDue(long now);
+
+	/**
+	 * Schedules the next tracking of a user returned by {@link #pollDue(long)}
+	 */
+	void completed(User user, long now);
+
+	/**
+	 * Schedules again a user returned by {@link #pollDue(long)} but not tracked: its interval is not
+	 * adapted as if it had been tracked
+	 */
+	void skipped(User user, long now);
+
+	/**
+	 * Time the next user is due, {@link Long#MAX_VALUE} when no user is scheduled
+	 */
+	long getNextDueTime();
+
+	int size();
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.tourguide.tracker;
+
+import com.openclassrooms.tourguide.service.RewardsService;
+
+/**
+ * Creates the {@link TrackingSchedule} selected by configuration.
+ */
+public class TrackingSchedules {
+	public static final String FIXED = "fixed";
+	public static final String ADAPTIVE = "adaptive";
+	public static final String PARTITIONED = "partitioned";
+
+	private TrackingSchedules() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * @param properties {@link TrackerProperties#getSchedule()} is {@value #FIXED} (every user every
+	 * interval), {@value #ADAPTIVE} (see {@link AdaptiveTrackingPolicy}) or {@value #PARTITIONED}
+	 * (every user every interval, partitions spread over the interval, see {@link PartitionedTrackingSchedule})
+	 */
+	public static TrackingSchedule create(TrackerProperties properties, RewardsService rewardsService) {
+		long interval = properties.getInterval().toMillis();
+		switch (properties.getSchedule()) {
+			case FIXED:
+				return new PriorityTrackingSchedule((user, previousInterval, now) -> interval, interval);
+			case ADAPTIVE:
+				return new PriorityTrackingSchedule(new AdaptiveTrackingPolicy(rewardsService, properties), interval);
+			case PARTITIONED:
+				return new PartitionedTrackingSchedule(interval, properties.getPartitions());
+			default:
+				throw new IllegalArgumentException("Unknown tracking schedule: " + properties.getSchedule());
+		}
+	}
+}
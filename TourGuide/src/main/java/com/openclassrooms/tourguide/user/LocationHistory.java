@@ -0,0 +1,204 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Visited locations of one user, stored column by column in primitive arrays.
+ * <p>
+ * The arrays grow by half their size up to the retention cap, then act as a ring buffer where each
+ * new location replaces the oldest one, so appending is O(1) and never copies the history.
+ * Every appended location gets a sequence number (0 for the first one ever appended),
+ * which stays valid after older locations are dropped.
+ * <p>
+ * {@link VisitedLocation} objects are only created when locations are read.
+ */
+public class LocationHistory {
+	// One day of tracking every 5 minutes is 288 locations
+	public static final int DEFAULT_RETENTION = 1024;
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final UUID userId;
+	private final int retention;
+	private double[] latitudes;
+	private double[] longitudes;
+	private long[] times;
+	// Number of locations ever appended, the next sequence number
+	private long appendedCount;
+	private int size;
+
+	public LocationHistory(UUID userId) {
+		this(userId, DEFAULT_RETENTION);
+	}
+
+	public LocationHistory(UUID userId, int retention) {
+		if (retention < 1) {
+			throw new IllegalArgumentException("retention must be positive: " + retention);
+		}
+		this.userId = userId;
+		this.retention = retention;
+		int capacity = Math.min(INITIAL_CAPACITY, retention);
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		times = new long[capacity];
+	}
+
+	/**
+	 * @return the sequence number of the appended location
+	 */
+	public synchronized long append(VisitedLocation visitedLocation) {
+		return append(visitedLocation.location.latitude, visitedLocation.location.longitude, visitedLocation.timeVisited.getTime());
+	}
+
+	public synchronized long append(double latitude, double longitude, long time) {
+		if (size == latitudes.length && size < retention) {
+			grow(Math.min(retention, size + (size >> 1) + 1));
+		}
+
+		int index = indexOf(appendedCount);
+		latitudes[index] = latitude;
+		longitudes[index] = longitude;
+		times[index] = time;
+		size = Math.min(size + 1, retention);
+		return appendedCount++;
+	}
+
+	/**
+	 * Replaces the history with the given locations, oldest first, the last one getting the sequence
+	 * number {@code appendedCount - 1}. Only the last {@link #getRetention()} locations are kept.
+	 */
+	public synchronized void restore(long appendedCount, double[] latitudes, double[] longitudes, long[] times, int count) {
+		int kept = Math.min(count, retention);
+		int capacity = Math.max(Math.min(INITIAL_CAPACITY, retention), kept);
+		this.latitudes = new double[capacity];
+		this.longitudes = new double[capacity];
+		this.times = new long[capacity];
+		this.appendedCount = appendedCount;
+		this.size = kept;
+		for (int i = count - kept; i < count; i++) {
+			int index = indexOf(appendedCount - count + i);
+			this.latitudes[index] = latitudes[i];
+			this.longitudes[index] = longitudes[i];
+			this.times[index] = times[i];
+		}
+	}
+
+	/**
+	 * Copies the retained locations, oldest first, into arrays of at least {@link #size()} elements.
+	 * Synchronize on the history to read the size and copy the locations consistently.
+	 *
+	 * @return the number of locations copied
+	 */
+	public synchronized int copyTo(double[] latitudes, double[] longitudes, long[] times) {
+		for (int i = 0; i < size; i++) {
+			int index = indexOf(appendedCount - size + i);
+			latitudes[i] = this.latitudes[index];
+			longitudes[i] = this.longitudes[index];
+			times[i] = this.times[index];
+		}
+		return size;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getRetention() {
+		return retention;
+	}
+
+	/**
+	 * Sequence number the next appended location will get
+	 */
+	public synchronized long getAppendedCount() {
+		return appendedCount;
+	}
+
+	/**
+	 * Sequence number of the oldest location still retained
+	 */
+	public synchronized long getFirstSequence() {
+		return appendedCount - size;
+	}
+
+	public synchronized VisitedLocation getLast() {
+		if (size == 0) {
+			throw new IndexOutOfBoundsException("Location history is empty");
+		}
+		return toVisitedLocation(indexOf(appendedCount - 1));
+	}
+
+	/**
+	 * Copies the latitude and longitude of the last location, without creating any object
+	 *
+	 * @param coordinates receives the latitude at index 0 and the longitude at index 1
+	 * @return false when the history is empty, coordinates are left untouched then
+	 */
+	public synchronized boolean readLast(double[] coordinates) {
+		if (size == 0) {
+			return false;
+		}
+		int index = indexOf(appendedCount - 1);
+		coordinates[0] = latitudes[index];
+		coordinates[1] = longitudes[index];
+		return true;
+	}
+
+	/**
+	 * Retained locations with a sequence number in [from, to), oldest first
+	 */
+	public synchronized List<VisitedLocation> range(long from, long to) {
+		long start = Math.max(from, appendedCount - size);
+		long end = Math.min(to, appendedCount);
+
+		List<VisitedLocation> visitedLocations = new ArrayList<>((int) Math.max(0, end - start));
+		for (long sequence = start; sequence < end; sequence++) {
+			visitedLocations.add(toVisitedLocation(indexOf(sequence)));
+		}
+		return visitedLocations;
+	}
+
+	/**
+	 * All retained locations, oldest first
+	 */
+	public List<VisitedLocation> toList() {
+		return range(0, Long.MAX_VALUE);
+	}
+
+	public synchronized void clear() {
+		size = 0;
+	}
+
+	private int indexOf(long sequence) {
+		return (int) (sequence % latitudes.length);
+	}
+
+	private void grow(int capacity) {
+		double[] newLatitudes = new double[capacity];
+		double[] newLongitudes = new double[capacity];
+		long[] newTimes = new long[capacity];
+		for (long sequence = appendedCount - size; sequence < appendedCount; sequence++) {
+			int from = indexOf(sequence);
+			int to = (int) (sequence % capacity);
+			newLatitudes[to] = latitudes[from];
+			newLongitudes[to] = longitudes[from];
+			newTimes[to] = times[from];
+		}
+		latitudes = newLatitudes;
+		longitudes = newLongitudes;
+		times = newTimes;
+	}
+
+	private VisitedLocation toVisitedLocation(int index) {
+		return new VisitedLocation(userId, new Location(latitudes[index], longitudes[index]), new Date(times[index]));
+	}
+}
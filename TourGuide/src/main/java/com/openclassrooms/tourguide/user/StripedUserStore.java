@@ -0,0 +1,157 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link UserStore} split in stripes by user name hash, each stripe being its own concurrent map.
+ * <p>
+ * The stripes give a natural partitioning: {@link #spliterator()} splits on stripe boundaries,
+ * so a parallel stream hands whole stripes to its workers without copying the users first.
+ */
+public class StripedUserStore implements UserStore {
+	public static final int DEFAULT_STRIPE_COUNT = 16;
+
+	private final ConcurrentHashMap<String, User>[] stripes;
+	private final Map<UUID, User> usersById = new ConcurrentHashMap<>();
+
+	public StripedUserStore() {
+		this(DEFAULT_STRIPE_COUNT);
+	}
+
+	@SuppressWarnings("unchecked")
+	public StripedUserStore(int stripeCount) {
+		if (stripeCount < 1) {
+			throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+		}
+		stripes = new ConcurrentHashMap[stripeCount];
+		Arrays.setAll(stripes, i -> new ConcurrentHashMap<>());
+	}
+
+	@Override
+	public boolean add(User user) {
+		if (stripeOf(user.getUserName()).putIfAbsent(user.getUserName(), user) != null) {
+			return false;
+		}
+		usersById.put(user.getUserId(), user);
+		return true;
+	}
+
+	@Override
+	public User getByName(String userName) {
+		return stripeOf(userName).get(userName);
+	}
+
+	@Override
+	public User getById(UUID userId) {
+		return usersById.get(userId);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Map<String, User> stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Users of one stripe, weakly consistent
+	 */
+	public Stream<User> stripe(int index) {
+		return stripes[index].values().stream();
+	}
+
+	@Override
+	public Stream<User> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	@Override
+	public Iterator<User> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator<User> spliterator() {
+		return new StripeSpliterator(0, stripes.length);
+	}
+
+	private Map<String, User> stripeOf(String userName) {
+		// Fibonacci hashing takes the stripe from the high bits: the low bits are the ones each
+		// stripe's map uses for its buckets, reusing them would crowd every stripe in a few buckets
+		int hash = userName.hashCode() * 0x9E3779B9;
+		return stripes[(int) (((hash & 0xFFFFFFFFL) * stripes.length) >>> 32)];
+	}
+
+	/**
+	 * Walks stripes [from, to), splitting in halves of stripes, then within the last stripe
+	 */
+	private class StripeSpliterator implements Spliterator<User> {
+		private int from;
+		private final int to;
+		private Spliterator<User> current;
+
+		StripeSpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super User> action) {
+			while (true) {
+				if (current == null) {
+					if (from >= to) {
+						return false;
+					}
+					current = stripes[from++].values().spliterator();
+				}
+				if (current.tryAdvance(action)) {
+					return true;
+				}
+				current = null;
+			}
+		}
+
+		@Override
+		public Spliterator<User> trySplit() {
+			if (current == null && to - from > 1) {
+				int mid = (from + to) >>> 1;
+				Spliterator<User> prefix = new StripeSpliterator(from, mid);
+				from = mid;
+				return prefix;
+			}
+			if (current == null && to - from == 1) {
+				current = stripes[from++].values().spliterator();
+			}
+			return current == null ? null : current.trySplit();
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = current == null ? 0 : current.estimateSize();
+			for (int i = from; i < to; i++) {
+				size += stripes[i].size();
+			}
+			return size;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.DISTINCT;
+		}
+	}
+}
@@ -3,8 +3,11 @@ package com.openclassrooms.tourguide.user;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
@@ -15,16 +18,31 @@ public class User {
 	private String phoneNumber;
 	private String emailAddress;
 	private Date latestLocationTimestamp;
-	private final CopyOnWriteArrayList<VisitedLocation> visitedLocations = new CopyOnWriteArrayList<>();
-	private final CopyOnWriteArrayList<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	// Last request of the user to the API, in epoch milliseconds, 0 if none
+	private volatile long lastAccessTime;
+	private final LocationHistory visitedLocations;
+	// Rewards by attraction name, the map guards against duplicates and the queue keeps them in order
+	private final Map<String, UserReward> rewardsByAttraction = new ConcurrentHashMap<>();
+	private final Queue<UserReward> userRewards = new ConcurrentLinkedQueue<>();
 	private UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
+	// Visited locations already evaluated for rewards, and the proximity they were evaluated with
+	private long rewardedLocationCount;
+	private int rewardedProximityBuffer;
 
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
+		this(userId, userName, phoneNumber, emailAddress, LocationHistory.DEFAULT_RETENTION);
+	}
+
+	/**
+	 * @param locationRetention maximum number of visited locations kept, older ones are dropped
+	 */
+	public User(UUID userId, String userName, String phoneNumber, String emailAddress, int locationRetention) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(userId, locationRetention);
 	}
 	
 	public UUID getUserId() {
@@ -51,6 +69,18 @@ public class User {
 		return emailAddress;
 	}
 	
+	public void recordAccess() {
+		recordAccess(System.currentTimeMillis());
+	}
+
+	public void recordAccess(long accessTime) {
+		lastAccessTime = accessTime;
+	}
+
+	public long getLastAccessTime() {
+		return lastAccessTime;
+	}
+
 	public void setLatestLocationTimestamp(Date latestLocationTimestamp) {
 		this.latestLocationTimestamp = latestLocationTimestamp;
 	}
@@ -59,26 +89,70 @@ public class User {
 		return latestLocationTimestamp;
 	}
 	
-	public void addToVisitedLocations(VisitedLocation visitedLocation) {
-		visitedLocations.add(visitedLocation);
+	/**
+	 * @return the sequence number of the location in the history
+	 */
+	public long addToVisitedLocations(VisitedLocation visitedLocation) {
+		return visitedLocations.append(visitedLocation);
 	}
 	
+	/**
+	 * Snapshot of the retained visited locations, oldest first
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
+		return visitedLocations.toList();
+	}
+
+	public LocationHistory getLocationHistory() {
 		return visitedLocations;
 	}
 	
-	public void clearVisitedLocations() {
+	public synchronized void clearVisitedLocations() {
 		visitedLocations.clear();
+		rewardedLocationCount = 0;
+	}
+
+	/**
+	 * Sequence number, in the location history, of the first visited location not yet evaluated
+	 * for rewards with the given proximity buffer: earlier locations don't need to be evaluated again
+	 */
+	public synchronized long getRewardedLocationCount(int proximityBuffer) {
+		return proximityBuffer == rewardedProximityBuffer ? rewardedLocationCount : 0;
+	}
+
+	public synchronized void setRewardedLocationCount(long rewardedLocationCount, int proximityBuffer) {
+		if (proximityBuffer != rewardedProximityBuffer || rewardedLocationCount > this.rewardedLocationCount) {
+			this.rewardedLocationCount = rewardedLocationCount;
+			this.rewardedProximityBuffer = proximityBuffer;
+		}
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if(userRewards.stream().noneMatch(r -> r.attraction.attractionName.equals(userReward.attraction.attractionName))) {
-			userRewards.add(userReward);
+	/**
+	 * Adds the reward unless the user has already been rewarded for its attraction
+	 *
+	 * @return true if the reward was added
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		if (rewardsByAttraction.putIfAbsent(userReward.attraction.attractionName, userReward) != null) {
+			return false;
 		}
+		userRewards.add(userReward);
+		return true;
+	}
+
+	public boolean hasRewardFor(String attractionName) {
+		return rewardsByAttraction.containsKey(attractionName);
 	}
 	
+	/**
+	 * Snapshot of the user rewards, in the order they were added
+	 */
 	public List<UserReward> getUserRewards() {
-		return userRewards;
+		return List.copyOf(userRewards);
+	}
+
+	public int getUserRewardCount() {
+		return rewardsByAttraction.size();
 	}
 	
 	public UserPreferences getUserPreferences() {
@@ -90,7 +164,7 @@ public class User {
 	}
 
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return visitedLocations.getLast();
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
@@ -0,0 +1,27 @@
+package com.openclassrooms.tourguide.user;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Receives the changes made to the users, after they are applied in memory.
+ */
+public interface UserJournal {
+
+	/**
+	 * Journal ignoring every change
+	 */
+	UserJournal NONE = new UserJournal() {
+	};
+
+	default void userAdded(User user) {
+	}
+
+	/**
+	 * @param sequence sequence number of the location in the user's history
+	 */
+	default void locationAdded(User user, long sequence, VisitedLocation visitedLocation) {
+	}
+
+	default void rewardAdded(User user, UserReward userReward) {
+	}
+}
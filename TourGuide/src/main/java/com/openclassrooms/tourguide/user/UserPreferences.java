@@ -1,8 +1,12 @@
 package com.openclassrooms.tourguide.user;
 
 public class UserPreferences {
+	/**
+	 * Attraction proximity of users who did not choose one: the service wide distances apply
+	 */
+	public static final int UNSET_ATTRACTION_PROXIMITY = Integer.MAX_VALUE;
 	
-	private int attractionProximity = Integer.MAX_VALUE;
+	private int attractionProximity = UNSET_ATTRACTION_PROXIMITY;
 	private int tripDuration = 1;
 	private int ticketQuantity = 1;
 	private int numberOfAdults = 1;
@@ -18,6 +22,10 @@ public class UserPreferences {
 	public int getAttractionProximity() {
 		return attractionProximity;
 	}
+
+	public boolean hasAttractionProximity() {
+		return attractionProximity != UNSET_ATTRACTION_PROXIMITY;
+	}
 	
 	public int getTripDuration() {
 		return tripDuration;
@@ -0,0 +1,29 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Registry of the users known by TourGuide, safe for concurrent reads and writes.
+ * <p>
+ * Iteration is weakly consistent: it never copies the registry, never throws
+ * {@link java.util.ConcurrentModificationException} and may or may not see users
+ * added while it runs.
+ */
+public interface UserStore extends Iterable<User> {
+
+	/**
+	 * Adds the user unless a user with the same name already exists
+	 *
+	 * @return true if the user was added
+	 */
+	boolean add(User user);
+
+	User getByName(String userName);
+
+	User getById(UUID userId);
+
+	int size();
+
+	Stream<User> stream();
+}
@@ -0,0 +1,153 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.AttractionIndex;
+import com.openclassrooms.tourguide.attraction.GeofenceLayer;
+import com.openclassrooms.tourguide.attraction.SphericalGeometry;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+class TestAttractionIndex {
+
+	private final Random random = new Random(42);
+
+	@Test
+	void withinMilesMatchesFullScan() {
+		RewardsService rewardsService = new RewardsService(new GpsUtil(), new RewardCentral());
+		List<Attraction> attractions = generateAttractions(5000);
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		for (int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+			double miles = random.nextInt(1000);
+
+			List<Attraction> expected = attractions.stream()
+					.filter(attraction -> !(rewardsService.getDistance(attraction, location) > miles))
+					.toList();
+
+			assertEquals(expected, index.withinMiles(location, miles));
+		}
+	}
+
+	@Test
+	void nearestMatchesFullSort() {
+		RewardsService rewardsService = new RewardsService(new GpsUtil(), new RewardCentral());
+		List<Attraction> attractions = generateAttractions(5000);
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		for (int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+
+			List<Attraction> expected = new ArrayList<>(attractions);
+			expected.sort(Comparator.comparingDouble(attraction -> rewardsService.getDistance(attraction, location)));
+
+			assertEquals(expected.subList(0, 5), index.nearest(location, 5));
+		}
+	}
+
+	@Test
+	void chordDistanceStaysWithinToleranceOfLawOfCosines() {
+		RewardsService rewardsService = new RewardsService(new GpsUtil(), new RewardCentral());
+
+		for (int i = 0; i < 100_000; i++) {
+			Location location1 = randomLocation();
+			// One pair out of two is only a few feet apart, where the law of cosines is least precise
+			Location location2 = (i & 1) == 0
+					? randomLocation()
+					: new Location(location1.latitude + random.nextDouble() * 1e-4, location1.longitude + random.nextDouble() * 1e-4);
+
+			assertEquals(rewardsService.getDistance(location1, location2), SphericalGeometry.distanceMiles(location1, location2),
+					SphericalGeometry.DISTANCE_TOLERANCE_MILES);
+		}
+	}
+
+	@Test
+	void wholeSphereRadiusReturnsEveryAttraction() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		assertEquals(attractions, index.withinMiles(randomLocation(), Integer.MAX_VALUE));
+	}
+
+	@Test
+	void geofenceLayerMatchesWithinMiles() {
+		List<Attraction> attractions = generateAttractions(2000);
+		// Regions wrapping around the antimeridian and reaching the poles
+		attractions.add(new Attraction("antimeridian", "city", "state", 10, 179.99));
+		attractions.add(new Attraction("north", "city", "state", 89.9, 45));
+		attractions.add(new Attraction("south", "city", "state", -89.9, -45));
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		for (int miles : new int[] { 0, 1, 10, 200, 3000, 7000, Integer.MAX_VALUE }) {
+			GeofenceLayer layer = new GeofenceLayer(index, miles);
+			for (int i = 0; i < 500; i++) {
+				// Half of the locations next to an attraction, so that small radiuses find some
+				Attraction near = attractions.get(random.nextInt(attractions.size()));
+				Location location = (i & 1) == 0
+						? randomLocation()
+						: new Location(Math.max(-90, Math.min(90, near.latitude + (random.nextDouble() - 0.5) * 0.5)),
+								near.longitude + (random.nextDouble() - 0.5) * 0.5);
+
+				assertEquals(index.withinMiles(location, miles), layer.withinMiles(location), miles + " miles");
+				// Shorter radiuses are answered by the same layer
+				int shorter = miles / 3;
+				int[] found = new int[attractions.size()];
+				int count = layer.withinMiles(location, shorter, found);
+				List<Attraction> withinShorter = new ArrayList<>();
+				for (int f = 0; f < count; f++) {
+					withinShorter.add(attractions.get(found[f]));
+				}
+				assertEquals(index.withinMiles(location, shorter), withinShorter, shorter + " of " + miles + " miles");
+			}
+		}
+	}
+
+	@Test
+	void proximityBufferChangeSwapsTheGeofenceLayer() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		// About 35 miles north of the attraction
+		Location location = new Location(attraction.latitude + 0.5, attraction.longitude);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date()));
+
+		rewardsService.calculateRewards(user);
+		assertEquals(0, user.getUserRewards().size());
+
+		rewardsService.setProximityBuffer(50);
+		rewardsService.calculateRewards(user);
+		assertEquals(50, rewardsService.getProximityBuffer());
+		assertEquals(1, user.getUserRewards().size());
+	}
+
+	private List<Attraction> generateAttractions(int count) {
+		List<Attraction> attractions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Location location = randomLocation();
+			attractions.add(new Attraction("attraction" + i, "city", "state", location.latitude, location.longitude));
+		}
+		return attractions;
+	}
+
+	private Location randomLocation() {
+		return new Location(-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360);
+	}
+}
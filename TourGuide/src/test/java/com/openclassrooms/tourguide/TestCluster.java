@@ -0,0 +1,146 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.openclassrooms.tourguide.cluster.ClusterAssignment;
+import com.openclassrooms.tourguide.cluster.ClusterTrackingSchedule;
+import com.openclassrooms.tourguide.cluster.ConsistentHashRing;
+import com.openclassrooms.tourguide.cluster.LoopbackClusterMembership;
+import com.openclassrooms.tourguide.tracker.PriorityTrackingSchedule;
+import com.openclassrooms.tourguide.user.User;
+
+class TestCluster {
+
+	private static final int USERS = 10000;
+
+	@Test
+	void ringSpreadsUsersEvenly() {
+		ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < USERS; i++) {
+			counts.merge(ring.ownerOf(UUID.randomUUID()), 1, Integer::sum);
+		}
+
+		assertEquals(4, counts.size());
+		counts.values().forEach(count -> assertTrue(count > USERS / 4 * 0.7 && count < USERS / 4 * 1.3, "count: " + count));
+	}
+
+	@Test
+	void clusterSchedulesPollDisjointUsers() {
+		String clusterName = UUID.randomUUID().toString();
+		ClusterAssignment first = new ClusterAssignment(new LoopbackClusterMembership(clusterName), "first", 16);
+		ClusterAssignment second = new ClusterAssignment(new LoopbackClusterMembership(clusterName), "second", 16);
+		ClusterTrackingSchedule firstSchedule = new ClusterTrackingSchedule(new PriorityTrackingSchedule((user, previousInterval, now) -> 1000, 1000), first);
+		ClusterTrackingSchedule secondSchedule = new ClusterTrackingSchedule(new PriorityTrackingSchedule((user, previousInterval, now) -> 1000, 1000), second);
+		for (int i = 0; i < 1000; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			firstSchedule.add(user, 0);
+			secondSchedule.add(user, 0);
+		}
+
+		List<User> firstDueUsers = firstSchedule.pollDue(0);
+		firstDueUsers.forEach(user -> firstSchedule.completed(user, 0));
+		Set<UUID> firstUsers = firstDueUsers.stream().map(User::getUserId).collect(Collectors.toSet());
+		Set<UUID> secondUsers = secondSchedule.pollDue(0).stream().map(User::getUserId).collect(Collectors.toSet());
+
+		assertEquals(1000, firstUsers.size() + secondUsers.size());
+		assertTrue(firstUsers.stream().noneMatch(secondUsers::contains));
+		assertEquals(secondUsers.size(), firstSchedule.getSkippedUsers());
+		// Users left to the other member come back at their next interval
+		assertEquals(1000, firstSchedule.getNextDueTime());
+
+		second.leave();
+		assertEquals(1000, firstSchedule.pollDue(1000).size());
+		first.leave();
+	}
+
+	@Test
+	void usersOfOtherMembersAreNotBackedOff() {
+		String clusterName = UUID.randomUUID().toString();
+		ClusterAssignment first = new ClusterAssignment(new LoopbackClusterMembership(clusterName), "first", 16);
+		ClusterAssignment second = new ClusterAssignment(new LoopbackClusterMembership(clusterName), "second", 16);
+		// Backs off like the adaptive policy: every completion doubles the interval
+		ClusterTrackingSchedule schedule = new ClusterTrackingSchedule(
+				new PriorityTrackingSchedule((user, previousInterval, now) -> previousInterval * 2, 1000), first);
+		User user;
+		do {
+			user = new User(UUID.randomUUID(), "user", "000", "user@tourGuide.com");
+		} while (first.owns(user.getUserId()));
+		schedule.add(user, 0);
+
+		for (long now = 0; now < 5000; now += 1000) {
+			assertTrue(schedule.pollDue(now).isEmpty());
+			assertEquals(now + 1000, schedule.getNextDueTime());
+		}
+
+		// Owned once the other member leaves, tracked at the initial interval
+		second.leave();
+		assertEquals(List.of(user), schedule.pollDue(5000));
+		first.leave();
+	}
+
+	@Test
+	void applicationContextsShareUsersAndRebalanceOnLeave() {
+		String clusterName = UUID.randomUUID().toString();
+		List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+		try {
+			for (String memberId : List.of("node-a", "node-b", "node-c")) {
+				contexts.add(new SpringApplicationBuilder(TourguideApplication.class)
+						.run("--server.port=0",
+								"--tourguide.cluster.backend=loopback",
+								"--tourguide.cluster.name=" + clusterName,
+								"--tourguide.cluster.member-id=" + memberId));
+			}
+			List<UUID> userIds = new ArrayList<>();
+			for (int i = 0; i < USERS; i++) {
+				userIds.add(UUID.randomUUID());
+			}
+
+			Map<UUID, String> owners = owners(contexts, userIds);
+			assertEquals(Set.of("node-a", "node-b", "node-c"), new HashSet<>(owners.values()));
+
+			contexts.remove(2).close();
+			Map<UUID, String> newOwners = owners(contexts, userIds);
+
+			// Only the users of the node that left move
+			for (UUID userId : userIds) {
+				if (!owners.get(userId).equals("node-c")) {
+					assertEquals(owners.get(userId), newOwners.get(userId));
+				}
+			}
+			assertEquals(Set.of("node-a", "node-b"), new HashSet<>(newOwners.values()));
+		} finally {
+			contexts.forEach(ConfigurableApplicationContext::close);
+		}
+	}
+
+	/* Owner of each user, asserting that exactly one context owns it */
+	private static Map<UUID, String> owners(List<ConfigurableApplicationContext> contexts, List<UUID> userIds) {
+		Map<UUID, String> owners = new HashMap<>();
+		for (UUID userId : userIds) {
+			for (ConfigurableApplicationContext context : contexts) {
+				ClusterAssignment assignment = context.getBean(ClusterAssignment.class);
+				if (assignment.owns(userId)) {
+					assertEquals(null, owners.put(userId, assignment.getMemberId()), "Two owners for " + userId);
+				}
+			}
+			assertTrue(owners.containsKey(userId), "No owner for " + userId);
+		}
+		return owners;
+	}
+}
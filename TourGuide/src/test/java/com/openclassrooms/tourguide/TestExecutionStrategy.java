@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
+import com.openclassrooms.tourguide.execution.VirtualThreadExecutionStrategy;
+
+class TestExecutionStrategy {
+
+	private final List<Integer> items = IntStream.range(0, 500).boxed().toList();
+
+	@Test
+	void forkJoinKeepsItemsOrder() {
+		ExecutionStrategy executionStrategy = ExecutionStrategies.create(ForkJoinExecutionStrategy.NAME, 10);
+
+		List<Integer> results = executionStrategy.map(items, i -> i * 2);
+		executionStrategy.shutdown();
+
+		assertEquals(items.stream().map(i -> i * 2).toList(), results);
+	}
+
+	@Test
+	void virtualThreadsKeepItemsOrderAndLimitConcurrency() {
+		assumeTrue(VirtualThreadExecutionStrategy.isSupported(), "Virtual threads need a Java 21 runtime");
+		ExecutionStrategy executionStrategy = ExecutionStrategies.create(VirtualThreadExecutionStrategy.NAME, 10);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		List<Integer> results = executionStrategy.map(items, i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				TimeUnit.MILLISECONDS.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			return i * 2;
+		});
+		executionStrategy.shutdown();
+
+		assertEquals(items.stream().map(i -> i * 2).toList(), results);
+		assertTrue(maxRunning.get() <= 10);
+	}
+
+	@Test
+	void virtualFallsBackToForkJoinWhenUnsupported() {
+		ExecutionStrategy executionStrategy = ExecutionStrategies.create(VirtualThreadExecutionStrategy.NAME, 10);
+		executionStrategy.shutdown();
+
+		String expected = VirtualThreadExecutionStrategy.isSupported()
+				? VirtualThreadExecutionStrategy.NAME
+				: ForkJoinExecutionStrategy.NAME;
+		assertEquals(expected, executionStrategy.getName());
+	}
+}
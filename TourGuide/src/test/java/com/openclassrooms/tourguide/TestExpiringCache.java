@@ -0,0 +1,101 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+
+class TestExpiringCache {
+
+	@Test
+	void leastRecentlyUsedEntryIsEvictedWhenFull() {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 2, Duration.ofMinutes(1), key -> key);
+
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.get("a");
+		cache.put("c", 3);
+
+		assertEquals(1, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(3, cache.get("c"));
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	void expiredEntryIsEvicted() throws InterruptedException {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, Duration.ofMillis(20), key -> key);
+
+		cache.put("a", 1);
+		TimeUnit.MILLISECONDS.sleep(50);
+
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	void groupInvalidationOnlyDropsItsEntries() {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), key -> key.charAt(0));
+
+		cache.put("a1", 1);
+		cache.put("a2", 2);
+		cache.put("b1", 3);
+		cache.invalidateGroup('a');
+
+		assertNull(cache.get("a1"));
+		assertNull(cache.get("a2"));
+		assertEquals(3, cache.get("b1"));
+	}
+
+	@Test
+	void valueComputedAcrossAnInvalidationIsDropped() {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), key -> key.charAt(0));
+
+		long stamp = cache.stamp("a1");
+		cache.invalidateGroup('a');
+
+		assertFalse(cache.put("a1", 1, stamp));
+		assertNull(cache.get("a1"));
+		assertTrue(cache.put("a1", 2, cache.stamp("a1")));
+		assertEquals(2, cache.get("a1"));
+	}
+
+	@Test
+	void stripedCacheStaysBounded() {
+		ExpiringCache<Integer, Integer> cache = new ExpiringCache<>("test", 100_000, Duration.ofMinutes(1), key -> key);
+
+		for (int i = 0; i < 300_000; i++) {
+			cache.put(i, i);
+		}
+
+		assertTrue(cache.size() <= 100_000);
+		assertTrue(cache.size() > 90_000);
+		assertEquals(299_999, cache.get(299_999));
+	}
+
+	@Test
+	void countersArePublished() {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, Duration.ofMinutes(1), key -> key);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		cache.bindTo(registry);
+
+		cache.put("a", 1);
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+
+		assertEquals(2, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+		assertEquals(1, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+		assertEquals(1, registry.get("cache.size").gauge().value());
+	}
+}
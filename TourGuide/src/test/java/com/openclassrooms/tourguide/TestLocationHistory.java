@@ -0,0 +1,94 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.LocationHistory;
+
+class TestLocationHistory {
+
+	private final UUID userId = UUID.randomUUID();
+
+	@Test
+	void keepsLocationsInOrder() {
+		LocationHistory history = new LocationHistory(userId);
+		for (int i = 0; i < 100; i++) {
+			history.append(visitedLocation(i));
+		}
+
+		List<VisitedLocation> visitedLocations = history.toList();
+		assertEquals(100, visitedLocations.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, visitedLocations.get(i).location.latitude);
+			assertEquals(i, visitedLocations.get(i).timeVisited.getTime());
+			assertEquals(userId, visitedLocations.get(i).userId);
+		}
+		assertEquals(99, history.getLast().location.latitude);
+	}
+
+	@Test
+	void oldestLocationsAreDroppedPastRetention() {
+		LocationHistory history = new LocationHistory(userId, 10);
+		for (int i = 0; i < 25; i++) {
+			history.append(visitedLocation(i));
+		}
+
+		assertEquals(10, history.size());
+		assertEquals(25, history.getAppendedCount());
+		assertEquals(15, history.getFirstSequence());
+		assertEquals(15, history.toList().get(0).location.latitude);
+		assertEquals(24, history.getLast().location.latitude);
+
+		// Sequence numbers stay valid, dropped locations are simply skipped
+		List<VisitedLocation> range = history.range(10, 18);
+		assertEquals(3, range.size());
+		assertEquals(15, range.get(0).location.latitude);
+	}
+
+	@Test
+	void clearKeepsSequenceNumbers() {
+		LocationHistory history = new LocationHistory(userId, 10);
+		for (int i = 0; i < 7; i++) {
+			history.append(visitedLocation(i));
+		}
+		history.clear();
+		assertTrue(history.isEmpty());
+
+		for (int i = 7; i < 20; i++) {
+			history.append(visitedLocation(i));
+		}
+		assertEquals(10, history.size());
+		assertEquals(10, history.toList().get(0).location.latitude);
+		assertEquals(List.of(), history.range(0, 10));
+	}
+
+	private static VisitedLocation visitedLocation(int i) {
+		return new VisitedLocation(UUID.randomUUID(), new Location(i, -i), new Date(i));
+	}
+
+	@Test
+	void readLastCopiesTheLastCoordinates() {
+		LocationHistory history = new LocationHistory(userId, 2);
+		double[] coordinates = {-1, -1};
+
+		assertFalse(history.readLast(coordinates));
+		assertEquals(-1, coordinates[0]);
+
+		for (int i = 0; i < 5; i++) {
+			history.append(new VisitedLocation(userId, new Location(i, -i), new Date(i)));
+		}
+
+		assertTrue(history.readLast(coordinates));
+		assertEquals(4, coordinates[0]);
+		assertEquals(-4, coordinates[1]);
+	}
+}
@@ -1,23 +1,63 @@
 package com.openclassrooms.tourguide;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.execution.ExecutionStrategy;
+import com.openclassrooms.tourguide.execution.ForkJoinExecutionStrategy;
+import com.openclassrooms.tourguide.execution.VirtualThreadExecutionStrategy;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.persistence.PersistenceProperties;
+import com.openclassrooms.tourguide.persistence.UserPersistence;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.LocationHistory;
+import com.openclassrooms.tourguide.user.StripedUserStore;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+import com.openclassrooms.tourguide.user.UserReward;
+import com.openclassrooms.tourguide.user.UserStore;
 
 class TestPerformance {
 
@@ -45,17 +85,27 @@ class TestPerformance {
 	 */
 
 	private static final int INTERNAL_USER_NUMBER = 100000;
+	private static final int MAX_CONCURRENT_TASKS = 1000;
+	private static final int HTTP_REQUESTS = 2000;
+	private static final int HTTP_CONCURRENCY = 64;
+	private static final int[] USER_ATTRACTION_PROXIMITIES = { UserPreferences.UNSET_ATTRACTION_PROXIMITY, 0, 5, 50, 500 };
+
+	@ParameterizedTest
+	@ValueSource(strings = { ForkJoinExecutionStrategy.NAME, VirtualThreadExecutionStrategy.NAME })
+	public void highVolumeTrackLocation(String strategy) {
+		assumeStrategySupported(strategy);
+		ExecutionStrategy executionStrategy = ExecutionStrategies.create(strategy, MAX_CONCURRENT_TASKS);
 
-	@Test
-	public void highVolumeTrackLocation() {
 		GpsUtil gpsUtil = new GpsUtil();
-		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardPointsClient(new RewardCentral()), executionStrategy);
 
 		InternalTestHelper.setInternalUserNumber(INTERNAL_USER_NUMBER);
-		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService, executionStrategy);
 
 		List<User> allUsers = tourGuideService.getAllUsers();
 
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
@@ -63,25 +113,37 @@ class TestPerformance {
 
 		stopWatch.stop();
 		tourGuideService.tracker.stopTracking();
+		executionStrategy.shutdown();
 
-		System.out.println("highVolumeTrackLocation: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds.");
+		report("highVolumeTrackLocation", strategy, stopWatch, threads.getPeakThreadCount());
 		assertTrue(TimeUnit.MINUTES.toSeconds(15) >= TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
 	}
 
-	@Test
-	public void highVolumeGetRewards() {
+	@ParameterizedTest
+	@ValueSource(strings = { ForkJoinExecutionStrategy.NAME, VirtualThreadExecutionStrategy.NAME })
+	public void highVolumeGetRewards(String strategy) {
+		assumeStrategySupported(strategy);
+		ExecutionStrategy executionStrategy = ExecutionStrategies.create(strategy, MAX_CONCURRENT_TASKS);
+
 		GpsUtil gpsUtil = new GpsUtil();
-		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardPointsClient(new RewardCentral()), executionStrategy);
 
 		InternalTestHelper.setInternalUserNumber(INTERNAL_USER_NUMBER);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
-		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService, executionStrategy);
 		Attraction attraction = gpsUtil.getAttractions().get(0);
 
 		List<User> allUsers = tourGuideService.getAllUsers();
 		allUsers.forEach(u -> u.addToVisitedLocations(new VisitedLocation(u.getUserId(), attraction, new Date())));
+		// Mixed radiuses: one user out of five keeps the proximity buffer
+		for (int i = 0; i < allUsers.size(); i++) {
+			int radius = USER_ATTRACTION_PROXIMITIES[i % USER_ATTRACTION_PROXIMITIES.length];
+			allUsers.get(i).getUserPreferences().setAttractionProximity(radius);
+		}
 
 		rewardsService.calculateAllUsersRewards(allUsers);
 
@@ -91,8 +153,225 @@ class TestPerformance {
 
 		stopWatch.stop();
 		tourGuideService.tracker.stopTracking();
+		executionStrategy.shutdown();
 
-		System.out.println("highVolumeGetRewards: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds.");
+		report("highVolumeGetRewards", strategy, stopWatch, threads.getPeakThreadCount());
 		assertTrue(TimeUnit.MINUTES.toSeconds(20) >= TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
 	}
+
+	@Test
+	public void visitedLocationsHeapFootprint() {
+		// One day of tracking every 5 minutes, measured on a tenth of the users to fit in the test heap
+		int users = INTERNAL_USER_NUMBER / 10;
+		int locationsPerUser = 288;
+
+		long legacyBytes = measureHeap(() -> {
+			List<List<VisitedLocation>> histories = new ArrayList<>(users);
+			for (int u = 0; u < users; u++) {
+				UUID userId = UUID.randomUUID();
+				List<VisitedLocation> history = new CopyOnWriteArrayList<>();
+				List<VisitedLocation> batch = new ArrayList<>(locationsPerUser);
+				for (int i = 0; i < locationsPerUser; i++) {
+					batch.add(new VisitedLocation(userId, new Location(i, i), new Date()));
+				}
+				history.addAll(batch);
+				histories.add(history);
+			}
+			return histories;
+		});
+		long compactBytes = measureHeap(() -> {
+			List<LocationHistory> histories = new ArrayList<>(users);
+			for (int u = 0; u < users; u++) {
+				UUID userId = UUID.randomUUID();
+				LocationHistory history = new LocationHistory(userId);
+				for (int i = 0; i < locationsPerUser; i++) {
+					history.append(new VisitedLocation(userId, new Location(i, i), new Date()));
+				}
+				histories.add(history);
+			}
+			return histories;
+		});
+
+		long scale = INTERNAL_USER_NUMBER / users;
+		System.out.println("visitedLocationsHeapFootprint: " + INTERNAL_USER_NUMBER + " users x " + locationsPerUser + " locations:"
+				+ " VisitedLocation list " + (legacyBytes * scale >> 20) + " MB,"
+				+ " LocationHistory " + (compactBytes * scale >> 20) + " MB.");
+		assertTrue(compactBytes * 2 < legacyBytes);
+	}
+
+	@Test
+	public void duplicateRewardCheckCostIsFlat() {
+		Attraction attraction = new GpsUtil().getAttractions().get(0);
+		long[] nanosPerCheck = new long[3];
+		int[] rewardCounts = { 100, 1_000, 10_000 };
+
+		// The first round warms the JIT up, the second one is measured
+		for (int round = 0; round < 2; round++)
+		for (int c = 0; c < rewardCounts.length; c++) {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+			for (int i = 0; i < rewardCounts[c]; i++) {
+				Attraction rewarded = new Attraction("attraction" + i, "city", "state", i % 90, i % 180);
+				user.addUserReward(new UserReward(visitedLocation, rewarded, i));
+			}
+
+			int checks = 200_000;
+			long start = System.nanoTime();
+			for (int i = 0; i < checks; i++) {
+				// Alternates rewarded and unknown attractions, the unknown ones walk the whole list with a linear scan
+				String attractionName = (i & 1) == 0 ? "attraction" + (i % rewardCounts[c]) : "unknown";
+				if (user.hasRewardFor(attractionName)) {
+					user.addUserReward(new UserReward(visitedLocation, new Attraction(attractionName, "city", "state", 0, 0), 0));
+				}
+			}
+			nanosPerCheck[c] = (System.nanoTime() - start) / checks;
+			assertEquals(rewardCounts[c], user.getUserRewardCount());
+		}
+
+		System.out.println("duplicateRewardCheckCostIsFlat: ns per check for " + rewardCounts[0] + "/" + rewardCounts[1] + "/" + rewardCounts[2]
+				+ " rewards: " + nanosPerCheck[0] + "/" + nanosPerCheck[1] + "/" + nanosPerCheck[2] + ".");
+		// A linear scan would be about 100 times slower with 10,000 rewards than with 100
+		assertTrue(nanosPerCheck[2] <= Math.max(nanosPerCheck[0], 50) * 10);
+	}
+
+	@Test
+	public void snapshotRestoreOf100kUsers(@TempDir Path directory) {
+		List<Attraction> attractions = new GpsUtil().getAttractions();
+		PersistenceProperties properties = new PersistenceProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setSnapshotInterval(Duration.ofHours(1));
+
+		long snapshotMillis = writeSnapshot(properties, attractions);
+
+		// The users written are unreachable by now, as after a restart
+		UserStore restored = new StripedUserStore();
+		StopWatch stopWatch = StopWatch.createStarted();
+		int restoredUsers = new UserPersistence(properties, attractions).open(restored);
+		long restoreMillis = stopWatch.getTime();
+
+		System.out.println("snapshotRestoreOf100kUsers: snapshot written in " + snapshotMillis + " ms, restored in " + restoreMillis + " ms.");
+		assertEquals(INTERNAL_USER_NUMBER, restoredUsers);
+		assertEquals(100, restored.getByName("internalUser42").getLocationHistory().size());
+		assertEquals(3, restored.getByName("internalUser42").getUserRewardCount());
+		assertTrue(TimeUnit.SECONDS.toMillis(5) >= restoreMillis);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "mvc", ReactiveTourGuideController.PROFILE })
+	public void concurrentRequestLatency(String stack) throws Exception {
+		InternalTestHelper.setInternalUserNumber(100);
+		SpringApplicationBuilder application = new SpringApplicationBuilder(TourguideApplication.class);
+		if (ReactiveTourGuideController.PROFILE.equals(stack)) {
+			application.profiles(ReactiveTourGuideController.PROFILE);
+		}
+
+		try (ConfigurableApplicationContext context = application.run("--server.port=0")) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+			String[] paths = { "/getNearbyAttractions?userName=internalUser", "/getLocation?userName=internalUser" };
+
+			// Server threads are sampled by name while the requests run
+			AtomicInteger peakServerThreads = new AtomicInteger();
+			ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+			sampler.scheduleAtFixedRate(() -> peakServerThreads.accumulateAndGet(countServerThreads(), Math::max),
+					0, 20, TimeUnit.MILLISECONDS);
+
+			long[] latencies = new long[HTTP_REQUESTS];
+			AtomicInteger failures = new AtomicInteger();
+			Semaphore inFlight = new Semaphore(HTTP_CONCURRENCY);
+			List<CompletableFuture<?>> responses = new ArrayList<>(HTTP_REQUESTS);
+			StopWatch stopWatch = StopWatch.createStarted();
+			for (int i = 0; i < HTTP_REQUESTS; i++) {
+				int request = i;
+				URI uri = URI.create("http://localhost:" + port + paths[i % paths.length] + (i % 100));
+				inFlight.acquire();
+				long start = System.nanoTime();
+				responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+						.whenComplete((response, e) -> {
+							latencies[request] = System.nanoTime() - start;
+							if (e != null || response.statusCode() != 200) {
+								failures.incrementAndGet();
+							}
+							inFlight.release();
+						}));
+			}
+			CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).handle((r, e) -> null).join();
+			stopWatch.stop();
+			sampler.shutdownNow();
+
+			Arrays.sort(latencies);
+			System.out.println("concurrentRequestLatency [" + stack + "]: " + HTTP_REQUESTS + " requests, " + HTTP_CONCURRENCY + " concurrent,"
+					+ " in " + stopWatch.getTime() + " ms."
+					+ " Latency p50/p95/p99: " + percentileMillis(latencies, 50) + "/" + percentileMillis(latencies, 95) + "/" + percentileMillis(latencies, 99) + " ms."
+					+ " Peak server threads: " + peakServerThreads.get() + ".");
+			assertEquals(0, failures.get());
+		}
+	}
+
+	private static long writeSnapshot(PersistenceProperties properties, List<Attraction> attractions) {
+		UserStore userStore = new StripedUserStore();
+		UserPersistence persistence = new UserPersistence(properties, attractions);
+		persistence.open(userStore);
+		for (int i = 0; i < INTERNAL_USER_NUMBER; i++) {
+			User user = new User(UUID.randomUUID(), "internalUser" + i, "000", "internalUser" + i + "@tourGuide.com");
+			// About 8 hours of tracking every 5 minutes
+			for (int l = 0; l < 100; l++) {
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(l % 90, i % 180), new Date(l)));
+			}
+			for (int r = 0; r < 3; r++) {
+				user.addUserReward(new UserReward(user.getLastVisitedLocation(), attractions.get((i + r) % attractions.size()), r));
+			}
+			userStore.add(user);
+		}
+
+		StopWatch stopWatch = StopWatch.createStarted();
+		persistence.snapshot();
+		long snapshotMillis = stopWatch.getTime();
+		persistence.shutdown();
+		return snapshotMillis;
+	}
+
+	private static long measureHeap(Supplier<Object> allocation) {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long before = memory.getHeapMemoryUsage().getUsed();
+		Object retained = allocation.get();
+		System.gc();
+		long after = memory.getHeapMemoryUsage().getUsed();
+		// Keeps the allocation reachable until it has been measured
+		assertTrue(retained != null);
+		return after - before;
+	}
+
+	private static long percentileMillis(long[] sortedNanos, int percentile) {
+		int index = Math.min(sortedNanos.length - 1, sortedNanos.length * percentile / 100);
+		return TimeUnit.NANOSECONDS.toMillis(sortedNanos[index]);
+	}
+
+	/**
+	 * Tomcat request threads for Spring MVC, event loop and bounded elastic threads for WebFlux
+	 */
+	private static int countServerThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			String name = thread.getName();
+			if (name.startsWith("http-nio") || name.startsWith("reactor-http") || name.startsWith("boundedElastic")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void assumeStrategySupported(String strategy) {
+		assumeTrue(!VirtualThreadExecutionStrategy.NAME.equals(strategy) || VirtualThreadExecutionStrategy.isSupported(),
+				"Virtual threads need a Java 21 runtime");
+	}
+
+	private static void report(String test, String strategy, StopWatch stopWatch, int peakThreadCount) {
+		double seconds = Math.max(stopWatch.getTime(), 1) / 1000.0;
+		System.out.println(test + " [" + strategy + "]: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."
+				+ " Throughput: " + Math.round(INTERNAL_USER_NUMBER / seconds) + " users/s."
+				+ " Peak threads: " + peakThreadCount + ".");
+	}
 }
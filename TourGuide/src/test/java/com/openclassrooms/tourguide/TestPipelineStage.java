@@ -0,0 +1,79 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import gpsUtil.GpsUtil;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.PipelineStage;
+import com.openclassrooms.tourguide.tracker.TrackerPipeline;
+import com.openclassrooms.tourguide.tracker.TrackerProperties;
+import com.openclassrooms.tourguide.user.User;
+
+class TestPipelineStage {
+
+	@Test
+	void trackerPipelineTracksEveryUser() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		List<User> users = IntStream.range(0, 20)
+				.mapToObj(i -> new User(UUID.randomUUID(), "jon" + i, "000", "jon" + i + "@tourGuide.com"))
+				.toList();
+
+		TrackerPipeline pipeline = new TrackerPipeline(tourGuideService, new TrackerProperties());
+		pipeline.start();
+		pipeline.track(users);
+
+		pipeline.shutdown();
+		tourGuideService.tracker.stopTracking();
+
+		for (User user : users) {
+			assertEquals(1, user.getVisitedLocations().size());
+			assertEquals(user.getLastVisitedLocation().timeVisited, user.getLatestLocationTimestamp());
+		}
+		for (PipelineStage<?> stage : pipeline.getStages()) {
+			assertEquals(users.size(), stage.getProcessedCount());
+			assertEquals(0, stage.getQueueDepth());
+		}
+	}
+
+	@Test
+	void stageErrorsAreCountedAndTheWorkerGoesOn() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(4);
+		PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 10, item -> {
+			if (item % 2 == 0) {
+				throw new AssertionError("item " + item);
+			}
+		}, null, item -> done.countDown());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		stage.bindTo(registry);
+		stage.start();
+
+		for (int i = 0; i < 4; i++) {
+			stage.submit(i);
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		stage.shutdown();
+
+		assertEquals(4, stage.getProcessedCount());
+		assertEquals(2, stage.getFailedCount());
+		assertEquals(2, registry.get("tracker.stage.failures").tag("stage", "test").functionCounter().count());
+		assertEquals(4, registry.get("tracker.stage.latency").tag("stage", "test").timer().count());
+	}
+}
@@ -0,0 +1,163 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.openclassrooms.tourguide.resilience.CallLimits;
+import com.openclassrooms.tourguide.resilience.CircuitBreaker;
+import com.openclassrooms.tourguide.resilience.DependencyUnavailableException;
+import com.openclassrooms.tourguide.resilience.DependencyUnavailableException.Reason;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy;
+import com.openclassrooms.tourguide.resilience.ResiliencePolicy.Outcome;
+
+class TestResiliencePolicy {
+
+	@Test
+	void rateLimiterRefusesCallsBeyondTheBurst() {
+		CallLimits limits = new CallLimits();
+		limits.setPermitsPerSecond(1);
+		limits.setBurst(5);
+		limits.setMaxWait(Duration.ZERO);
+		ResiliencePolicy policy = new ResiliencePolicy("test", limits);
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, policy.call(() -> 0));
+		}
+		DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> 0));
+
+		assertEquals(Reason.RATE_LIMITED, e.getReason());
+		assertEquals(5, policy.getCount(Outcome.SUCCESS));
+		policy.shutdown();
+	}
+
+	@Test
+	void bulkheadCapsConcurrentCalls() throws Exception {
+		CallLimits limits = new CallLimits();
+		limits.setMaxConcurrentCalls(2);
+		limits.setMaxWait(Duration.ofMillis(50));
+		ResiliencePolicy policy = new ResiliencePolicy("test", limits);
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			calls.add(CompletableFuture.supplyAsync(() -> policy.call(() -> release.await(5, TimeUnit.SECONDS))));
+		}
+		while (policy.getActiveCalls() < 2) {
+			Thread.sleep(1);
+		}
+		DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> true));
+		release.countDown();
+
+		assertEquals(Reason.BULKHEAD_FULL, e.getReason());
+		calls.forEach(call -> assertTrue(call.join()));
+		policy.shutdown();
+	}
+
+	@Test
+	void slowCallsTimeOutAndOpenTheCircuit() throws Exception {
+		CallLimits limits = new CallLimits();
+		limits.setTimeout(Duration.ofMillis(20));
+		limits.setSlidingWindowSize(4);
+		limits.setMinimumCalls(4);
+		limits.setOpenDuration(Duration.ofMillis(100));
+		limits.setHalfOpenCalls(1);
+		ResiliencePolicy policy = new ResiliencePolicy("test", limits);
+
+		for (int i = 0; i < 4; i++) {
+			DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> {
+				Thread.sleep(1000);
+				return 0;
+			}));
+			assertEquals(Reason.TIMEOUT, e.getReason());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, policy.getCircuitState());
+		DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> 0));
+		assertEquals(Reason.CIRCUIT_OPEN, e.getReason());
+
+		// A successful trial call once the circuit is half open closes it
+		Thread.sleep(150);
+		assertEquals(1, policy.call(() -> 1));
+		assertEquals(CircuitBreaker.State.CLOSED, policy.getCircuitState());
+		policy.shutdown();
+	}
+
+	@Test
+	void callsIgnoringInterruptsAreReportedAsTimedOutUntilTheyReturn() throws Exception {
+		CallLimits limits = new CallLimits();
+		limits.setMaxConcurrentCalls(1);
+		limits.setMaxWait(Duration.ZERO);
+		limits.setTimeout(Duration.ofMillis(20));
+		ResiliencePolicy policy = new ResiliencePolicy("test", limits);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		policy.bindTo(registry);
+		CountDownLatch release = new CountDownLatch(1);
+
+		DependencyUnavailableException timeout = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> {
+			// Like GpsUtil and TripPricer, the call keeps running when interrupted
+			while (release.getCount() > 0) {
+				Thread.onSpinWait();
+			}
+			return 0;
+		}));
+		assertEquals(Reason.TIMEOUT, timeout.getReason());
+		assertEquals(1, policy.getActiveCalls());
+		assertEquals(1, policy.getTimedOutCalls());
+		assertEquals(1, registry.get("resilience.bulkhead.timed.out").tag("dependency", "test").gauge().value());
+		DependencyUnavailableException refused = assertThrows(DependencyUnavailableException.class, () -> policy.call(() -> 0));
+		assertEquals(Reason.BULKHEAD_FULL, refused.getReason());
+
+		release.countDown();
+		while (policy.getActiveCalls() > 0) {
+			Thread.sleep(1);
+		}
+		assertEquals(0, policy.getTimedOutCalls());
+		assertEquals(1, policy.call(() -> 1));
+		policy.shutdown();
+	}
+
+	@Test
+	void failuresArePropagatedAndCounted() {
+		ResiliencePolicy policy = new ResiliencePolicy("test", new CallLimits());
+
+		assertThrows(IllegalArgumentException.class, () -> policy.call(() -> {
+			throw new IllegalArgumentException("failed");
+		}));
+
+		assertEquals(1, policy.getCount(Outcome.FAILURE));
+		assertEquals(CircuitBreaker.State.CLOSED, policy.getCircuitState());
+		policy.shutdown();
+	}
+
+	@Test
+	void latencyOfCompletedCallsIsTimed() {
+		ResiliencePolicy policy = new ResiliencePolicy("test", new CallLimits());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		policy.bindTo(registry);
+
+		policy.call(() -> {
+			TimeUnit.MILLISECONDS.sleep(20);
+			return 1;
+		});
+		assertThrows(IllegalArgumentException.class, () -> policy.call(() -> {
+			throw new IllegalArgumentException("failed");
+		}));
+
+		Timer latency = registry.get("dependency.latency").tag("dependency", "test").timer();
+		assertEquals(2, latency.count());
+		assertTrue(latency.max(TimeUnit.MILLISECONDS) >= 20);
+		policy.shutdown();
+	}
+}
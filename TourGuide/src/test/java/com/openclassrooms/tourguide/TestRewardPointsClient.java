@@ -0,0 +1,173 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+
+class TestRewardPointsClient {
+
+	@Test
+	void duplicateCallsAreCoalesced() {
+		SlowRewardCentral rewardCentral = new SlowRewardCentral();
+		RewardPointsClient client = new RewardPointsClient(rewardCentral, 10);
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		List<CompletableFuture<Integer>> calls = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			calls.add(client.getAttractionRewardPoints(attractionId, userId));
+		}
+		rewardCentral.release.countDown();
+
+		calls.forEach(call -> assertEquals(42, call.join()));
+		client.shutdown();
+
+		assertEquals(1, rewardCentral.calls.get());
+		assertEquals(1, client.getRemoteCalls());
+		assertEquals(19, client.getCoalescedCalls());
+	}
+
+	@Test
+	void cachedPointsAreServedUntilInvalidated() {
+		SlowRewardCentral rewardCentral = new SlowRewardCentral();
+		rewardCentral.release.countDown();
+		RewardPointsClient client = new RewardPointsClient(rewardCentral, 10);
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		client.getAttractionRewardPoints(attractionId, userId).join();
+		client.getAttractionRewardPoints(attractionId, userId).join();
+		assertEquals(1, rewardCentral.calls.get());
+
+		client.invalidateUser(userId);
+		client.getAttractionRewardPoints(attractionId, userId).join();
+		client.shutdown();
+
+		assertEquals(2, rewardCentral.calls.get());
+		assertEquals(1, client.getCache().getHitCount());
+	}
+
+	@Test
+	void pointsInFlightDuringAnInvalidationAreNotCached() {
+		SlowRewardCentral rewardCentral = new SlowRewardCentral();
+		RewardPointsClient client = new RewardPointsClient(rewardCentral, 10);
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		CompletableFuture<Integer> inFlight = client.getAttractionRewardPoints(attractionId, userId);
+		client.invalidateUser(userId);
+		rewardCentral.release.countDown();
+		inFlight.join();
+		client.getAttractionRewardPoints(attractionId, userId).join();
+		client.shutdown();
+
+		assertEquals(2, rewardCentral.calls.get());
+		assertEquals(0, client.getCache().getHitCount());
+	}
+
+	@Test
+	void concurrentCallsAreLimited() {
+		SlowRewardCentral rewardCentral = new SlowRewardCentral();
+		rewardCentral.release.countDown();
+		RewardPointsClient client = new RewardPointsClient(rewardCentral, 3);
+
+		List<CompletableFuture<Integer>> calls = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			calls.add(client.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID()));
+		}
+
+		CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+		client.shutdown();
+
+		assertEquals(30, rewardCentral.calls.get());
+		assertTrue(rewardCentral.maxRunning.get() <= 3);
+	}
+
+	@Test
+	void callThrowingAnErrorCompletesAndIsNotCoalescedAgain() {
+		AtomicInteger calls = new AtomicInteger();
+		RewardPointsClient client = new RewardPointsClient(new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				if (calls.incrementAndGet() == 1) {
+					throw new StackOverflowError();
+				}
+				return 42;
+			}
+		}, 1);
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		ExecutionException failure = assertThrows(ExecutionException.class,
+				() -> client.getAttractionRewardPoints(attractionId, userId).get(5, TimeUnit.SECONDS));
+		assertInstanceOf(StackOverflowError.class, failure.getCause());
+		assertEquals(42, client.getAttractionRewardPoints(attractionId, userId).join());
+		client.shutdown();
+	}
+
+	@Test
+	void callsBeyondThePendingLimitFail() {
+		SlowRewardCentral rewardCentral = new SlowRewardCentral();
+		RewardPointsClient client = new RewardPointsClient(rewardCentral, 1, 2, 100, Duration.ofMinutes(1));
+
+		List<CompletableFuture<Integer>> calls = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			calls.add(client.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID()));
+		}
+		// One call running, two queued, the others rejected
+		assertTrue(calls.get(4).isCompletedExceptionally());
+		rewardCentral.release.countDown();
+		client.shutdown();
+
+		long rejected = calls.stream().filter(call -> {
+			try {
+				call.join();
+				return false;
+			} catch (CompletionException e) {
+				return e.getCause() instanceof RejectedExecutionException;
+			}
+		}).count();
+		assertTrue(rejected >= 2);
+		assertEquals(rejected, client.getRejectedCalls());
+	}
+
+	private static class SlowRewardCentral extends RewardCentral {
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger calls = new AtomicInteger();
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+
+		@Override
+		public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+			calls.incrementAndGet();
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				release.await(5, TimeUnit.SECONDS);
+				TimeUnit.MILLISECONDS.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				running.decrementAndGet();
+			}
+			return 42;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+import com.openclassrooms.tourguide.persistence.UserPersistence;
+import com.openclassrooms.tourguide.persistence.WriteAheadLog;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+
+@SpringBootTest
+class TestRewardsJournaling {
+
+	private static final Path DIRECTORY = createDirectory();
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private RewardsService rewardsService;
+
+	@Autowired
+	private UserPersistence userPersistence;
+
+	@DynamicPropertySource
+	static void persistence(DynamicPropertyRegistry registry) {
+		registry.add("tourguide.persistence.enabled", () -> true);
+		registry.add("tourguide.persistence.directory", DIRECTORY::toString);
+	}
+
+	@Test
+	void rewardsOfTheRewardsServiceAreJournaled() throws IOException {
+		assertEquals(1, context.getBeanNamesForType(RewardsService.class).length);
+		// Not added to the store: the tracker would reward it meanwhile
+		User user = new User(UUID.randomUUID(), "journaled", "000", "journaled@tourGuide.com");
+		Attraction attraction = rewardsService.getAttractions().get(0);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+
+		rewardsService.calculateRewards(user);
+		userPersistence.flush();
+
+		AtomicInteger journaledRewards = new AtomicInteger();
+		WriteAheadLog.replay(DIRECTORY, 0, (type, payload) -> {
+			if (type == WriteAheadLog.REWARD && user.getUserId().equals(new UUID(payload.getLong(), payload.getLong()))) {
+				journaledRewards.incrementAndGet();
+			}
+		});
+		assertEquals(1, user.getUserRewardCount());
+		assertEquals(1, journaledRewards.get());
+	}
+
+	private static Path createDirectory() {
+		try {
+			return Files.createTempDirectory("tourguide-journal");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
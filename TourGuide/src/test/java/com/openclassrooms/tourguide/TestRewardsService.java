@@ -1,19 +1,30 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.event.LocationEvent;
+import com.openclassrooms.tourguide.event.LocationEventBus;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardEngine;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
@@ -38,6 +49,25 @@ class TestRewardsService {
 		assertEquals(1, userRewards.size());
 	}
 
+	@Test
+	void newRewardsInvalidateTheCachedPointsOfTheUser() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardPointsClient rewardPointsClient = new RewardPointsClient(new RewardCentral());
+		RewardsService rewardsService = new RewardsService(gpsUtil, rewardPointsClient, ExecutionStrategies.forkJoin());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		Attraction otherAttraction = gpsUtil.getAttractions().get(1);
+		rewardsService.getRewardPoints(otherAttraction, user);
+
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		rewardsService.calculateRewards(user);
+		rewardsService.getRewardPoints(otherAttraction, user);
+		rewardPointsClient.shutdown();
+
+		assertEquals(1, user.getUserRewardCount());
+		assertEquals(0, rewardPointsClient.getCache().getHitCount());
+	}
+
 	@Test
 	void isWithinAttractionProximity() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -46,6 +76,151 @@ class TestRewardsService {
 		assertTrue(rewardsService.isWithinAttractionProximity(attraction, attraction));
 	}
 
+	@Test
+	void rewardChecksStayConstantAsHistoryGrows() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		for (int tick = 0; tick < 50; tick++) {
+			/* Far away from every attraction, except one tick on the first attraction */
+			Location location = (tick == 25) ? attraction : new Location(-60, tick);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date()));
+
+			assertEquals(1, rewardsService.calculateRewards(user));
+		}
+
+		User fullRescanUser = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		user.getVisitedLocations().forEach(fullRescanUser::addToVisitedLocations);
+
+		assertEquals(50, rewardsService.calculateRewards(fullRescanUser));
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(
+				fullRescanUser.getUserRewards().get(0).attraction.attractionName,
+				user.getUserRewards().get(0).attraction.attractionName
+		);
+	}
+
+	@Test
+	void concurrentRewardsForAnAttractionAreAddedOnce() {
+		Attraction attraction = new GpsUtil().getAttractions().get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+
+		long added = IntStream.range(0, 1000).parallel()
+				.filter(i -> user.addUserReward(new UserReward(visitedLocation, attraction, i)))
+				.count();
+
+		assertEquals(1, added);
+		assertEquals(1, user.getUserRewards().size());
+		assertTrue(user.hasRewardFor(attraction.attractionName));
+	}
+
+	@Test
+	void rewardEngineRewardsPublishedLocations() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		LocationEventBus eventBus = new LocationEventBus();
+		RewardEngine rewardEngine = new RewardEngine(rewardsService, eventBus, 2, 10);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+		eventBus.publish(new LocationEvent(user, user.addToVisitedLocations(visitedLocation), visitedLocation));
+
+		for (int i = 0; i < 100 && rewardEngine.getProcessedCount() == 0; i++) {
+			TimeUnit.MILLISECONDS.sleep(50);
+		}
+		rewardEngine.shutdown();
+
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(1, rewardEngine.getProcessedCount());
+		assertFalse(eventBus.isSubscribed(RewardEngine.SUBSCRIBER));
+	}
+
+	@Test
+	void userAttractionProximityOverridesProximityBuffer() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		// About 35 miles north of the attraction, beyond the default proximity buffer
+		Location location = new Location(attraction.latitude + 0.5, attraction.longitude);
+
+		User nearUser = new User(UUID.randomUUID(), "near", "000", "near@tourGuide.com");
+		nearUser.getUserPreferences().setAttractionProximity(50);
+		User farUser = new User(UUID.randomUUID(), "far", "000", "far@tourGuide.com");
+		farUser.getUserPreferences().setAttractionProximity(20);
+		User defaultUser = new User(UUID.randomUUID(), "default", "000", "default@tourGuide.com");
+		for (User user : List.of(nearUser, farUser, defaultUser)) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date()));
+		}
+
+		rewardsService.calculateAllUsersRewards(List.of(nearUser, farUser, defaultUser));
+
+		assertTrue(nearUser.hasRewardFor(attraction.attractionName));
+		assertFalse(farUser.hasRewardFor(attraction.attractionName));
+		assertFalse(defaultUser.hasRewardFor(attraction.attractionName));
+		assertTrue(rewardsService.isWithinAttractionProximity(attraction, location, nearUser));
+		assertFalse(rewardsService.isWithinAttractionProximity(attraction, location, farUser));
+		assertTrue(rewardsService.isWithinAttractionProximity(attraction, location, defaultUser));
+
+		// A wider radius evaluates the history again
+		farUser.getUserPreferences().setAttractionProximity(40);
+		rewardsService.calculateRewards(farUser);
+		assertTrue(farUser.hasRewardFor(attraction.attractionName));
+	}
+
+	@Test
+	void outOfRangeAttractionProximitiesAgreeOnBothPaths() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		for (int radius : new int[] { -5, Integer.MAX_VALUE - 1 }) {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			user.getUserPreferences().setAttractionProximity(radius);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+			rewardsService.calculateRewards(user);
+
+			List<String> within = rewardsService.getAttractionsWithin(attraction, radius).stream()
+					.map(other -> other.attractionName)
+					.toList();
+			for (Attraction other : gpsUtil.getAttractions()) {
+				assertEquals(rewardsService.isWithinAttractionProximity(other, attraction, user), user.hasRewardFor(other.attractionName),
+						other.attractionName + " within " + radius + " miles");
+				assertEquals(user.hasRewardFor(other.attractionName), within.contains(other.attractionName),
+						other.attractionName + " within " + radius + " miles");
+			}
+		}
+		// About a mile away: within 5 miles, but not within a negative radius
+		Location nearby = new Location(attraction.latitude + 0.015, attraction.longitude);
+		assertEquals(1, rewardsService.getAttractionsWithin(nearby, 5).size());
+		assertTrue(rewardsService.getAttractionsWithin(nearby, -5).isEmpty());
+	}
+
+	@Test
+	void checkedAndRewardedAttractionsAreCounted() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		rewardsService.bindTo(registry);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		rewardsService.calculateRewards(user);
+		// Same attraction again: checked, already rewarded
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		rewardsService.calculateRewards(user);
+
+		long checked = (long) registry.get("rewards.attractions").tag("result", "checked").functionCounter().count();
+		assertTrue(checked >= 2);
+		assertEquals(1, registry.get("rewards.attractions").tag("result", "rewarded").functionCounter().count());
+		assertEquals(2, registry.get("rewards.calculations").functionCounter().count());
+		assertEquals(2, registry.get("rewards.locations.evaluated").functionCounter().count());
+	}
+
 //	@Disabled("Needs fixed - can throw ConcurrentModificationException")
 	@Test
 	void nearAllAttractions() {
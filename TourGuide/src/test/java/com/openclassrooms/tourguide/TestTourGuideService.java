@@ -4,14 +4,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringWriter;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.attraction.SphericalGeometry;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
@@ -116,6 +120,87 @@ class TestTourGuideService {
 		}
 	}
 
+	@Test
+	void getNearbyAttractionsWithCount() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+
+		List<NearbyAttractionDTO> nearbyAttractions = tourGuideService.getNearByAttractions(visitedLocation, user, 10);
+
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(10, nearbyAttractions.size());
+		double previousDistance = 0;
+		for (NearbyAttractionDTO nearbyAttraction : nearbyAttractions) {
+			Location attractionLocation = new Location(nearbyAttraction.getAttractionLatitude(), nearbyAttraction.getAttractionLongitude());
+			assertEquals(rewardsService.getDistance(attractionLocation, visitedLocation.location), nearbyAttraction.getDistanceInMiles(),
+					SphericalGeometry.DISTANCE_TOLERANCE_MILES);
+			assertTrue(nearbyAttraction.getDistanceInMiles() >= previousDistance);
+			previousDistance = nearbyAttraction.getDistanceInMiles();
+		}
+		assertTrue(tourGuideService.getNearByAttractions(visitedLocation, user, 0).isEmpty());
+		// No more than every attraction, whatever the count requested
+		assertEquals(rewardsService.getAttractions().size(),
+				tourGuideService.getNearByAttractions(visitedLocation, user, Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	void getNearbyAttractionsWithinUserAttractionProximity() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		List<NearbyAttractionDTO> allNearby = tourGuideService.getNearByAttractions(visitedLocation, user, 10);
+		// Radius between the 3rd and the 4th closest attraction
+		int radius = (int) Math.ceil(allNearby.get(2).getDistanceInMiles());
+		user.getUserPreferences().setAttractionProximity(radius);
+
+		List<NearbyAttractionDTO> nearbyAttractions = tourGuideService.getNearByAttractions(visitedLocation, user, 10);
+
+		tourGuideService.tracker.stopTracking();
+
+		assertTrue(nearbyAttractions.size() >= 3);
+		assertEquals(allNearby.subList(0, nearbyAttractions.size()).stream().map(NearbyAttractionDTO::getAttractionName).toList(),
+				nearbyAttractions.stream().map(NearbyAttractionDTO::getAttractionName).toList());
+		nearbyAttractions.forEach(attraction -> assertTrue(attraction.getDistanceInMiles() <= radius));
+	}
+
+	@Test
+	void writeCurrentLocations() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		User neverLocated = new User(UUID.randomUUID(), "jon3", "000", "jon3@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(1, 2), new Date()));
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(33.817595, -117.922008), new Date()));
+		user2.addToVisitedLocations(new VisitedLocation(user2.getUserId(), new Location(-5.5, 120.25), new Date()));
+		tourGuideService.getUserStore().add(user);
+		tourGuideService.getUserStore().add(user2);
+		tourGuideService.getUserStore().add(neverLocated);
+
+		StringWriter writer = new StringWriter();
+		int written = tourGuideService.writeCurrentLocations(writer);
+
+		assertEquals(2, written);
+		List<String> lines = writer.toString().lines().toList();
+		assertThat(lines).containsExactlyInAnyOrder(
+				"{\"userId\":\"" + user.getUserId() + "\",\"latitude\":33.817595,\"longitude\":-117.922008}",
+				"{\"userId\":\"" + user2.getUserId() + "\",\"latitude\":-5.5,\"longitude\":120.25}");
+	}
+
 	public void getTripDeals() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
@@ -0,0 +1,142 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.tracker.PartitionedTrackingSchedule;
+import com.openclassrooms.tourguide.tracker.TrackerProperties;
+import com.openclassrooms.tourguide.tracker.TrackingSchedule;
+import com.openclassrooms.tourguide.tracker.TrackingSchedules;
+import com.openclassrooms.tourguide.user.User;
+
+class TestTrackingSchedule {
+
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+	private static final int SIMULATED_MINUTES = 120;
+
+	private final GpsUtil gpsUtil = new GpsUtil();
+	private final RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+
+	@Test
+	void fixedScheduleTracksEveryUserEveryInterval() {
+		Map<String, Integer> polls = simulate(TrackingSchedules.FIXED);
+
+		// Minutes 0, 5, ..., 120
+		polls.values().forEach(count -> assertEquals(25, count));
+	}
+
+	@Test
+	void adaptiveScheduleFollowsMovementActivityAndAttractions() {
+		Map<String, Integer> polls = simulate(TrackingSchedules.ADAPTIVE);
+
+		assertEquals(25, polls.get("moving"));
+		assertTrue(polls.get("stationary") <= 8, "stationary: " + polls.get("stationary"));
+		assertEquals(SIMULATED_MINUTES + 1, polls.get("active"));
+		assertTrue(polls.get("nearAttraction") > 25, "nearAttraction: " + polls.get("nearAttraction"));
+	}
+
+	@Test
+	void partitionedScheduleSpreadsUsersOverTheInterval() {
+		TrackerProperties properties = new TrackerProperties();
+		properties.setSchedule(TrackingSchedules.PARTITIONED);
+		PartitionedTrackingSchedule schedule = (PartitionedTrackingSchedule) TrackingSchedules.create(properties, rewardsService);
+		long interval = properties.getInterval().toMillis();
+		long window = interval / schedule.getPartitionCount();
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 1200; i++) {
+			schedule.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"), start);
+		}
+
+		// Two cycles, the users of each partition are tracked within the partition window
+		Map<UUID, Integer> polls = new HashMap<>();
+		for (long now = start; now < start + 2 * interval; now += window) {
+			List<User> dueUsers = schedule.pollDue(now);
+			assertTrue(dueUsers.size() < 1200 / 4, "one partition at a time: " + dueUsers.size());
+			for (User user : dueUsers) {
+				polls.merge(user.getUserId(), 1, Integer::sum);
+				schedule.completed(user, now + window / 2);
+			}
+		}
+
+		assertEquals(1200, polls.size());
+		polls.values().forEach(count -> assertEquals(2, count));
+		for (int p = 0; p < schedule.getPartitionCount(); p++) {
+			assertEquals(0, schedule.getStartLag(p));
+			assertEquals(0, schedule.getCompletionLag(p));
+		}
+	}
+
+	@Test
+	void partitionedScheduleReportsLagWhenTrackingOverrunsItsWindow() {
+		PartitionedTrackingSchedule schedule = new PartitionedTrackingSchedule(MINUTE, 2);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		schedule.add(user, 0);
+		int partition = schedule.getPartitionSize(0) == 1 ? 0 : 1;
+		long plannedTime = partition * MINUTE / 2;
+
+		// Dispatched 10s late, completed 40s after its window ended
+		assertEquals(List.of(user), schedule.pollDue(plannedTime + 10_000));
+		schedule.completed(user, plannedTime + MINUTE / 2 + 40_000);
+
+		assertEquals(10_000, schedule.getStartLag(partition));
+		assertEquals(40_000, schedule.getCompletionLag(partition));
+		// The next cycle keeps its planned time
+		assertEquals(List.of(), schedule.pollDue(plannedTime + MINUTE - 1));
+		assertEquals(List.of(user), schedule.pollDue(plannedTime + MINUTE));
+	}
+
+	/**
+	 * Tracks one user of each kind for two hours, one schedule check per minute
+	 *
+	 * @return the number of times each user was tracked
+	 */
+	private Map<String, Integer> simulate(String scheduleName) {
+		TrackerProperties properties = new TrackerProperties();
+		properties.setSchedule(scheduleName);
+		TrackingSchedule schedule = TrackingSchedules.create(properties, rewardsService);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+
+		Map<String, User> users = new HashMap<>();
+		for (String kind : List.of("stationary", "moving", "active", "nearAttraction")) {
+			users.put(kind, new User(UUID.randomUUID(), kind, "000", kind + "@tourGuide.com"));
+		}
+		Map<String, Integer> polls = new HashMap<>();
+		long start = System.currentTimeMillis();
+		users.values().forEach(user -> schedule.add(user, start));
+
+		for (int minute = 0; minute <= SIMULATED_MINUTES; minute++) {
+			long now = start + minute * MINUTE;
+			users.get("active").recordAccess(now);
+
+			for (User user : new ArrayList<>(schedule.pollDue(now))) {
+				polls.merge(user.getUserName(), 1, Integer::sum);
+				// Far away from every attraction in the southern ocean, except the user at the attraction
+				Location location = switch (user.getUserName()) {
+					case "moving" -> new Location(-60, minute);
+					case "nearAttraction" -> attraction;
+					default -> new Location(-60, 0);
+				};
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, new Date(now)));
+				schedule.completed(user, now);
+			}
+		}
+		return polls;
+	}
+}
@@ -0,0 +1,100 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.TripDealsClient;
+
+class TestTripDealsClient {
+
+	@Test
+	void quotesAreCachedPerPreferencesAndPoints() {
+		CountingTripPricer tripPricer = new CountingTripPricer();
+		tripPricer.release.countDown();
+		TripDealsClient client = new TripDealsClient(tripPricer);
+		UUID userId = UUID.randomUUID();
+
+		List<Provider> providers = client.getPrice("key", userId, 2, 1, 7, 100).join();
+		assertSame(providers, client.getPrice("key", userId, 2, 1, 7, 100).join());
+		assertEquals(1, tripPricer.calls.get());
+
+		// New reward points or preferences are priced again
+		client.getPrice("key", userId, 2, 1, 7, 200).join();
+		client.getPrice("key", userId, 2, 0, 7, 200).join();
+		assertEquals(3, tripPricer.calls.get());
+
+		client.invalidateUser(userId);
+		client.getPrice("key", userId, 2, 1, 7, 100).join();
+		client.shutdown();
+
+		assertEquals(4, tripPricer.calls.get());
+		assertEquals(1, client.getCache().getHitCount());
+	}
+
+	@Test
+	void callersAreNotBlockedWhilePricing() {
+		CountingTripPricer tripPricer = new CountingTripPricer();
+		TripDealsClient client = new TripDealsClient(tripPricer);
+		UUID userId = UUID.randomUUID();
+
+		List<CompletableFuture<List<Provider>>> calls = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			calls.add(client.getPrice("key", userId, 2, 1, 7, 100));
+		}
+		// Every call returned while the pricing is still blocked
+		tripPricer.release.countDown();
+
+		calls.forEach(call -> assertEquals(1, call.join().size()));
+		client.shutdown();
+
+		assertEquals(1, tripPricer.calls.get());
+		assertEquals(1, client.getRemoteCalls());
+	}
+
+	@Test
+	void pricingThrowingAnErrorCompletesTheQuote() {
+		TripDealsClient client = new TripDealsClient(new TripPricer() {
+			@Override
+			public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+				throw new NoClassDefFoundError("tripPricer");
+			}
+		});
+
+		ExecutionException failure = assertThrows(ExecutionException.class,
+				() -> client.getPrice("key", UUID.randomUUID(), 2, 1, 7, 100).get(5, TimeUnit.SECONDS));
+		client.shutdown();
+
+		assertInstanceOf(NoClassDefFoundError.class, failure.getCause());
+	}
+
+	private static class CountingTripPricer extends TripPricer {
+		private final AtomicInteger calls = new AtomicInteger();
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+			calls.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return List.of(new Provider(attractionId, "provider", 100.0 * adults + 50.0 * children - rewardsPoints));
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.TripDealsClient;
+import com.openclassrooms.tourguide.cluster.ClusterAssignment;
+import com.openclassrooms.tourguide.event.LocationEventBus;
+import com.openclassrooms.tourguide.execution.ExecutionStrategies;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.persistence.PersistenceProperties;
+import com.openclassrooms.tourguide.persistence.UserCodec;
+import com.openclassrooms.tourguide.persistence.UserPersistence;
+import com.openclassrooms.tourguide.persistence.UserSnapshot;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.TrackerProperties;
+import com.openclassrooms.tourguide.user.StripedUserStore;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+import com.openclassrooms.tourguide.user.UserStore;
+
+class TestUserPersistence {
+
+	private static final List<Attraction> ATTRACTIONS = List.of(
+			new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008),
+			new Attraction("Jackson Hole", "Jackson Hole", "WY", 43.582767, -110.821999));
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void snapshotRestoresUsersHistoriesAndRewards() throws IOException {
+		UserStore userStore = new StripedUserStore();
+		for (int i = 0; i < 3000; i++) {
+			userStore.add(newUser(i, i % 40));
+		}
+		UserSnapshot snapshot = new UserSnapshot(new UserCodec(ATTRACTIONS));
+		Path file = directory.resolve("users.snapshot");
+
+		assertEquals(3000, snapshot.write(file, userStore, 7));
+		UserStore restored = new StripedUserStore();
+		long walGeneration = snapshot.read(file, restored::add);
+
+		assertEquals(7, walGeneration);
+		assertEquals(3000, restored.size());
+		for (User user : userStore) {
+			assertSameUser(user, restored.getById(user.getUserId()));
+		}
+	}
+
+	@Test
+	void changesAfterTheSnapshotAreReplayedFromTheLog() {
+		UserPersistence persistence = new UserPersistence(enabledProperties(), ATTRACTIONS);
+		UserStore userStore = new StripedUserStore();
+		assertEquals(0, persistence.open(userStore));
+
+		User user = newUser(1, 2);
+		userStore.add(user);
+		persistence.userAdded(user);
+		persistence.snapshot();
+
+		// After the snapshot: a new user, locations and a reward
+		User newUser = newUser(2, 0);
+		userStore.add(newUser);
+		persistence.userAdded(newUser);
+		addLocation(persistence, user, 10, 20);
+		addLocation(persistence, newUser, 30, 40);
+		UserReward userReward = new UserReward(newUser.getLastVisitedLocation(), ATTRACTIONS.get(1), 300);
+		newUser.addUserReward(userReward);
+		persistence.rewardAdded(newUser, userReward);
+		// Stops without a last snapshot, as a crash would
+		persistence.flush();
+
+		UserStore restored = new StripedUserStore();
+		assertEquals(2, new UserPersistence(enabledProperties(), ATTRACTIONS).open(restored));
+		assertSameUser(user, restored.getById(user.getUserId()));
+		assertSameUser(newUser, restored.getById(newUser.getUserId()));
+	}
+
+	@Test
+	void replayingTwiceDoesNotDuplicateChanges() throws IOException {
+		UserPersistence persistence = new UserPersistence(enabledProperties(), ATTRACTIONS);
+		UserStore userStore = new StripedUserStore();
+		persistence.open(userStore);
+		User user = newUser(1, 0);
+		userStore.add(user);
+		persistence.userAdded(user);
+		addLocation(persistence, user, 10, 20);
+		persistence.flush();
+		// Snapshot taken after the changes, while the log still holds them
+		new UserSnapshot(new UserCodec(ATTRACTIONS)).write(directory.resolve("users.snapshot"), userStore, 0);
+		// A record cut short by a crash ends the log
+		try (Stream<Path> files = Files.list(directory)) {
+			Path log = files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+			Files.write(log, new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+		}
+
+		UserStore restored = new StripedUserStore();
+		new UserPersistence(enabledProperties(), ATTRACTIONS).open(restored);
+
+		assertSameUser(user, restored.getById(user.getUserId()));
+	}
+
+	@Test
+	void locationsAfterAGapInTheLogAreDropped() {
+		UserPersistence persistence = new UserPersistence(enabledProperties(), ATTRACTIONS);
+		UserStore userStore = new StripedUserStore();
+		persistence.open(userStore);
+		User user = newUser(1, 0);
+		userStore.add(user);
+		persistence.userAdded(user);
+		addLocation(persistence, user, 10, 20);
+		// The record of the second location is lost
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(30, 40), new Date()));
+		addLocation(persistence, user, 50, 60);
+		persistence.flush();
+
+		UserStore restored = new StripedUserStore();
+		UserPersistence restoring = new UserPersistence(enabledProperties(), ATTRACTIONS);
+		restoring.open(restored);
+
+		List<VisitedLocation> locations = restored.getById(user.getUserId()).getVisitedLocations();
+		assertEquals(1, locations.size());
+		assertEquals(10, locations.get(0).location.latitude);
+		assertEquals(1, restoring.getDroppedRecords());
+	}
+
+	@Test
+	void internalUsersAreJournaledAtStartup() throws Exception {
+		UserPersistence persistence = new UserPersistence(enabledProperties(), ATTRACTIONS);
+		UserStore userStore = new StripedUserStore();
+		persistence.open(userStore);
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(10);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService, ExecutionStrategies.forkJoin(),
+				new TrackerProperties(), ClusterAssignment.standalone(), new TripDealsClient(new TripPricer()), userStore,
+				persistence, new LocationEventBus());
+		// Every user is due at startup, the tracker is idle once they all went through the pipeline
+		while (tourGuideService.tracker.getTrackedUsers() < 10) {
+			Thread.sleep(10);
+		}
+		tourGuideService.tracker.stopTracking();
+		// Stops without a snapshot, as a crash would
+		persistence.flush();
+
+		UserStore restored = new StripedUserStore();
+		assertEquals(10, new UserPersistence(enabledProperties(), ATTRACTIONS).open(restored));
+		for (User user : userStore) {
+			assertSameUser(user, restored.getById(user.getUserId()));
+		}
+	}
+
+	private PersistenceProperties enabledProperties() {
+		PersistenceProperties properties = new PersistenceProperties();
+		properties.setEnabled(true);
+		properties.setDirectory(directory.toString());
+		properties.setSnapshotInterval(Duration.ofHours(1));
+		properties.setFlushInterval(Duration.ofHours(1));
+		return properties;
+	}
+
+	private static User newUser(int i, int locationCount) {
+		User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com", 16);
+		user.getUserPreferences().setNumberOfAdults(1 + i % 3);
+		user.getUserPreferences().setTripDuration(i % 7);
+		user.recordAccess(i);
+		for (int l = 0; l < locationCount; l++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(l * 0.5, -l * 0.25), new Date(1000L * l)));
+		}
+		if (locationCount > 0) {
+			user.setLatestLocationTimestamp(new Date(1000L * (locationCount - 1)));
+			user.addUserReward(new UserReward(user.getLastVisitedLocation(), ATTRACTIONS.get(i % 2), i));
+		}
+		return user;
+	}
+
+	private static void addLocation(UserPersistence persistence, User user, double latitude, double longitude) {
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(latitude, longitude), new Date());
+		persistence.locationAdded(user, user.addToVisitedLocations(visitedLocation), visitedLocation);
+		// As the tracker does once the location went through the pipeline
+		user.setLatestLocationTimestamp(visitedLocation.timeVisited);
+	}
+
+	private static void assertSameUser(User expected, User actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getUserName(), actual.getUserName());
+		assertEquals(expected.getEmailAddress(), actual.getEmailAddress());
+		assertEquals(expected.getLatestLocationTimestamp(), actual.getLatestLocationTimestamp());
+		assertEquals(expected.getLastAccessTime(), actual.getLastAccessTime());
+		assertEquals(expected.getUserPreferences().getNumberOfAdults(), actual.getUserPreferences().getNumberOfAdults());
+		assertEquals(expected.getUserPreferences().getTripDuration(), actual.getUserPreferences().getTripDuration());
+		assertEquals(expected.getLocationHistory().getRetention(), actual.getLocationHistory().getRetention());
+		assertEquals(expected.getLocationHistory().getAppendedCount(), actual.getLocationHistory().getAppendedCount());
+		List<VisitedLocation> expectedLocations = expected.getVisitedLocations();
+		List<VisitedLocation> actualLocations = actual.getVisitedLocations();
+		assertEquals(expectedLocations.size(), actualLocations.size());
+		for (int i = 0; i < expectedLocations.size(); i++) {
+			assertEquals(expectedLocations.get(i).location.latitude, actualLocations.get(i).location.latitude);
+			assertEquals(expectedLocations.get(i).location.longitude, actualLocations.get(i).location.longitude);
+			assertEquals(expectedLocations.get(i).timeVisited, actualLocations.get(i).timeVisited);
+		}
+		assertEquals(expected.getUserRewardCount(), actual.getUserRewardCount());
+		for (UserReward userReward : expected.getUserRewards()) {
+			UserReward restoredReward = actual.getUserRewards().stream()
+					.filter(reward -> reward.attraction.attractionName.equals(userReward.attraction.attractionName))
+					.findFirst().orElseThrow();
+			assertEquals(userReward.getRewardPoints(), restoredReward.getRewardPoints());
+			assertEquals(userReward.visitedLocation.timeVisited, restoredReward.visitedLocation.timeVisited);
+		}
+	}
+}
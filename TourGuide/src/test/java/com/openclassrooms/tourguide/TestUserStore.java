@@ -0,0 +1,125 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.user.StripedUserStore;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserStore;
+
+class TestUserStore {
+
+	private static final int WRITERS = 8;
+	private static final int USERS_PER_WRITER = 5000;
+
+	@Test
+	void lookupByNameAndId() {
+		UserStore userStore = new StripedUserStore();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User sameName = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		assertTrue(userStore.add(user));
+		assertFalse(userStore.add(sameName));
+
+		assertSame(user, userStore.getByName("jon"));
+		assertSame(user, userStore.getById(user.getUserId()));
+		assertEquals(1, userStore.size());
+	}
+
+	@Test
+	void parallelStreamVisitsEveryUserOnce() {
+		StripedUserStore userStore = new StripedUserStore();
+		for (int i = 0; i < 10000; i++) {
+			userStore.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+
+		Set<String> userNames = userStore.stream().parallel()
+				.map(User::getUserName)
+				.collect(Collectors.toSet());
+		long visits = userStore.stream().parallel().count();
+
+		assertEquals(10000, userNames.size());
+		assertEquals(10000, visits);
+	}
+
+	@Test
+	void concurrentWritersAndReaders() throws Exception {
+		UserStore userStore = new StripedUserStore();
+		ExecutorService executorService = Executors.newFixedThreadPool(WRITERS + 4);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+
+		List<CompletableFuture<List<User>>> writers = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			writers.add(CompletableFuture.supplyAsync(() -> {
+				await(start);
+				List<User> added = new ArrayList<>();
+				for (int i = 0; i < USERS_PER_WRITER; i++) {
+					// Every writer also tries to add the names of the previous writer
+					String userName = "user" + ((writer + i % 2) % WRITERS) + "-" + i;
+					User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+					if (userStore.add(user)) {
+						added.add(user);
+					}
+				}
+				return added;
+			}, executorService));
+		}
+
+		List<CompletableFuture<Void>> readers = new ArrayList<>();
+		for (int r = 0; r < 4; r++) {
+			readers.add(CompletableFuture.runAsync(() -> {
+				await(start);
+				while (writing.get()) {
+					// Iterating while users are added must neither fail nor return inconsistent users
+					for (User user : userStore) {
+						assertSame(user, userStore.getByName(user.getUserName()));
+					}
+				}
+			}, executorService));
+		}
+
+		start.countDown();
+		List<User> added = new ArrayList<>();
+		for (CompletableFuture<List<User>> writer : writers) {
+			added.addAll(writer.join());
+		}
+		writing.set(false);
+		CompletableFuture.allOf(readers.toArray(CompletableFuture[]::new)).join();
+		executorService.shutdown();
+
+		Set<String> userNames = new HashSet<>();
+		added.forEach(user -> assertTrue(userNames.add(user.getUserName())));
+		assertEquals(added.size(), userStore.size());
+		assertEquals(added.size(), userStore.stream().count());
+		for (User user : added) {
+			assertSame(user, userStore.getByName(user.getUserName()));
+			assertSame(user, userStore.getById(user.getUserId()));
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}